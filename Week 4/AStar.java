@@ -0,0 +1,125 @@
+/* *****************************************************************************
+ * Compilation:  javac-algs4 AStar.java
+ *
+ * A* search for the sliding puzzle over a NodeArena. Nodes are int
+ * indices: the frontier is a BucketQueue of indices, the closed set a
+ * LongIntTable from board keys to the fewest moves a board was expanded
+ * at, and only the board being expanded is unpacked, into one scratch
+ * array. An instance keeps its arena, queue and table between solves,
+ * so repeated solves on one thread allocate almost nothing.
+ *
+ * A solve polls its thread's interrupt flag every few thousand expansions
+ * and gives up with a CancellationException once it is set. It counts
+ * its work into a SearchMetrics as it goes.
+ *
+ **************************************************************************** */
+
+import java.util.concurrent.CancellationException;
+
+class AStar {
+
+    private static final int RETAINED_TABLE_SIZE = 1 << 20;
+    private static final int INTERRUPT_CHECK_MASK = 0xFFF;
+
+    private final NodeArena arena = new NodeArena();
+    private final BucketQueue frontier = new BucketQueue();
+    private LongIntTable closed = new LongIntTable();
+    private int[] tiles = new int[0];
+    private final SearchMetrics metrics = new SearchMetrics();   // of the last solve
+
+    // blank directions of a shortest solution from initial, which must be
+    // solvable, guided by the admissible heuristic
+    byte[] solve(Board initial, Heuristic heuristic) {
+        int width = initial.dimension();
+        arena.reset(width);
+        frontier.clear();
+        if (closed.size() > RETAINED_TABLE_SIZE) {
+            closed = new LongIntTable();
+        }
+        else {
+            closed.clear();
+        }
+        if (tiles.length != width * width) tiles = new int[width * width];
+        metrics.reset();
+
+        long goalKey = Board.goal(width).key();
+
+        initial.copyTo(tiles);
+        int root = arena.addRoot(initial, heuristic.evaluate(tiles));
+        frontier.insert(root, heuristic.estimate(arena.estimate(root)), 0);
+
+        while (true) {
+            int node = frontier.delMin();
+            int moves = arena.moves(node);
+            long key = arena.key(node);
+
+            // skip boards already expanded at equal or lower cost
+            if (!closed.offer(key, moves)) {
+                metrics.duplicates++;
+                continue;
+            }
+
+            int blank = arena.load(node, tiles);
+            if (key == goalKey && isGoal(tiles)) {
+                metrics.footprint = arena.footprint() + frontier.footprint() + closed.footprint();
+                return arena.path(node);
+            }
+
+            if ((++metrics.expanded & INTERRUPT_CHECK_MASK) == 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("search interrupted");
+                }
+                metrics.progress(frontier.size());
+            }
+
+            int estimate = arena.estimate(node);
+            int previous = arena.lastMove(node);
+            for (int direction = Board.LEFT; direction <= Board.DOWN; direction++) {
+                // the move back to the parent is always closed at lower cost
+                if (direction == (previous ^ 1)) continue;
+                int target = Board.target(blank, direction, width);
+                if (target < 0) continue;
+
+                int tile = tiles[target];
+                long childKey = Board.moveKey(key, width, tile, target, blank);
+                int closedMoves = closed.get(childKey);
+                if (closedMoves >= 0 && closedMoves <= moves + 1) {
+                    metrics.duplicates++;
+                    continue;
+                }
+
+                // slide the scratch copy to the child and back
+                tiles[blank] = tile;
+                tiles[target] = 0;
+                int childEstimate = heuristic.update(tiles, estimate, tile, target, blank);
+                tiles[target] = tile;
+                tiles[blank] = 0;
+
+                int child = arena.addChild(node, childKey, tile, target, blank,
+                                           moves + 1, childEstimate, direction);
+                frontier.insert(child, moves + 1 + heuristic.estimate(childEstimate), moves + 1);
+                metrics.generated++;
+            }
+            metrics.frontier(frontier.size());
+        }
+    }
+
+    // nodes expanded by the last solve
+    long expanded() {
+        return metrics.expanded;
+    }
+
+    // counts of the last solve, updated as it runs
+    SearchMetrics metrics() {
+        return metrics;
+    }
+
+    // are the row-major tiles the goal? Needed only to confirm a match of
+    // goal keys for boards wider than 4x4, whose keys are hashes
+    static boolean isGoal(int[] tiles) {
+        for (int cell = 0; cell < tiles.length; cell++) {
+            if (tiles[cell] != (cell + 1) % tiles.length) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,215 @@
+/* *****************************************************************************
+ * Compilation:  javac-algs4 AnytimeAStar.java
+ *
+ * Anytime Repairing A* (ARA*, Likhachev, Gordon and Thrun) for the sliding
+ * puzzle. A series of weighted A* searches orders nodes by g + w * h with
+ * w falling from 5 to 1 in steps of 1/2; priorities are kept doubled,
+ * 2g + 2w * h, so that they stay integers for the BucketQueue. Each
+ * search continues from the last rather than starting over: a node whose
+ * moves improve after it was expanded in the current search waits in an
+ * inconsistent list and rejoins the frontier for the next weight.
+ *
+ * After each search the solution found is within a factor
+ * min(w, moves / f) of optimal, where f is the smallest g + h of any
+ * frontier or inconsistent node; a factor of 1 ends the run early. A
+ * search may be cut short by a deadline or an expansion budget, leaving
+ * the best solution and the factor proved so far; before the first
+ * search completes no factor is proved. The guarantee assumes, as ARA*
+ * does, a consistent heuristic.
+ *
+ **************************************************************************** */
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+class AnytimeAStar {
+
+    private static final int INITIAL_WEIGHT = 10;   // doubled, so w = 5
+    private static final int BUDGET_CHECK_MASK = 0xFF;
+    private static final int RETAINED_TABLE_SIZE = 1 << 20;
+    // a deadline that never passes
+    static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final NodeArena arena = new NodeArena();
+    private final BucketQueue frontier = new BucketQueue();
+    private LongIntTable nodes = new LongIntTable();    // key to best node
+    private LongIntTable closed = new LongIntTable();   // expanded this search
+    private int[] inconsistent = new int[64];
+    private int inconsistentCount;
+    private int[] tiles = new int[0];
+    private int width;
+    private long goalKey;
+
+    private int goal;          // best goal node found; -1 if none
+    private double bound;      // proved suboptimality factor of that goal
+    private final SearchMetrics metrics = new SearchMetrics();   // of the last solve
+
+    // Improve a solution from initial, which must be solvable, until it is
+    // optimal, the clock passes deadline (a System.nanoTime() value, or
+    // NO_DEADLINE), or maxExpansions nodes have been expanded.
+    void solve(Board initial, Heuristic heuristic, long deadline, long maxExpansions) {
+        width = initial.dimension();
+        arena.reset(width);
+        frontier.clear();
+        if (nodes.size() > RETAINED_TABLE_SIZE) {
+            nodes = new LongIntTable();
+            closed = new LongIntTable();
+        }
+        else {
+            nodes.clear();
+            closed.clear();
+        }
+        inconsistentCount = 0;
+        if (tiles.length != width * width) tiles = new int[width * width];
+        goalKey = Board.goal(width).key();
+        goal = -1;
+        bound = Double.POSITIVE_INFINITY;
+        metrics.reset();
+
+        initial.copyTo(tiles);
+        int root = arena.addRoot(initial, heuristic.evaluate(tiles));
+        nodes.put(initial.key(), root);
+        if (initial.isGoal()) {
+            goal = root;
+            bound = 1;
+            return;
+        }
+        frontier.insert(root, INITIAL_WEIGHT * heuristic.estimate(arena.estimate(root)), 0);
+        search(heuristic, deadline, maxExpansions);
+        metrics.footprint = arena.footprint() + frontier.footprint()
+                + nodes.footprint() + closed.footprint();
+    }
+
+    // the weighted searches, from the initial weight down
+    private void search(Heuristic heuristic, long deadline, long maxExpansions) {
+        for (int weight = INITIAL_WEIGHT; ; weight--) {
+            if (!improve(weight, heuristic, deadline, maxExpansions)) return;
+
+            int lowest = reweigh(Math.max(weight - 1, 2), heuristic);
+            bound = Math.min(weight / 2.0, (double) arena.moves(goal) / lowest);
+            if (bound <= 1) {
+                bound = 1;
+                return;
+            }
+        }
+    }
+
+    // blank directions of the best solution found; null if none was
+    byte[] path() {
+        return goal < 0 ? null : arena.path(goal);
+    }
+
+    // the best solution is at most this factor times the optimal moves;
+    // infinite if no factor was proved
+    double bound() {
+        return bound;
+    }
+
+    long expanded() {
+        return metrics.expanded;
+    }
+
+    // counts of the last solve, over every weight
+    SearchMetrics metrics() {
+        return metrics;
+    }
+
+    // Run weighted A* with priorities 2g + weight * h until no frontier
+    // node could lead to a cheaper goal; false if the budget ran out first.
+    private boolean improve(int weight, Heuristic heuristic, long deadline, long maxExpansions) {
+        while (!frontier.isEmpty()
+                && (goal < 0 || 2 * arena.moves(goal) > frontier.minPriority())) {
+            int node = frontier.delMin();
+            long key = arena.key(node);
+
+            // skip superseded nodes and boards already expanded this search
+            if (nodes.get(key) != node || !closed.offer(key, 0)) {
+                metrics.duplicates++;
+                continue;
+            }
+
+            if (metrics.expanded >= maxExpansions) return false;
+            if ((++metrics.expanded & BUDGET_CHECK_MASK) == 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("search interrupted");
+                }
+                if (deadline != NO_DEADLINE && System.nanoTime() - deadline >= 0) return false;
+                metrics.progress(frontier.size());
+            }
+
+            int blank = arena.load(node, tiles);
+            int moves = arena.moves(node);
+            int estimate = arena.estimate(node);
+            int previous = arena.lastMove(node);
+            for (int direction = Board.LEFT; direction <= Board.DOWN; direction++) {
+                if (direction == (previous ^ 1)) continue;
+                int target = Board.target(blank, direction, width);
+                if (target < 0) continue;
+
+                int tile = tiles[target];
+                long childKey = Board.moveKey(key, width, tile, target, blank);
+                int existing = nodes.get(childKey);
+                if (existing >= 0 && arena.moves(existing) <= moves + 1) {
+                    metrics.duplicates++;
+                    continue;
+                }
+
+                // slide the scratch copy to the child and back
+                tiles[blank] = tile;
+                tiles[target] = 0;
+                int childEstimate = heuristic.update(tiles, estimate, tile, target, blank);
+                boolean isGoal = childKey == goalKey && AStar.isGoal(tiles);
+                tiles[target] = tile;
+                tiles[blank] = 0;
+
+                int child = arena.addChild(node, childKey, tile, target, blank,
+                                           moves + 1, childEstimate, direction);
+                nodes.put(childKey, child);
+                metrics.generated++;
+                if (isGoal) {
+                    goal = child;
+                }
+                else if (closed.get(childKey) >= 0) {
+                    addInconsistent(child);
+                }
+                else {
+                    frontier.insert(child, 2 * (moves + 1) + weight * heuristic.estimate(childEstimate),
+                                    moves + 1);
+                }
+            }
+            metrics.frontier(frontier.size());
+        }
+        return true;
+    }
+
+    // Rebuild the frontier from its live nodes and the inconsistent ones
+    // with priorities for the next weight, and start a new closed set;
+    // returns the smallest g + h among those nodes.
+    private int reweigh(int weight, Heuristic heuristic) {
+        int[] live = Arrays.copyOf(inconsistent, inconsistentCount + frontier.size());
+        int count = inconsistentCount;
+        while (!frontier.isEmpty()) {
+            live[count++] = frontier.delMin();
+        }
+        closed.clear();
+        inconsistentCount = 0;
+
+        int lowest = Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            int node = live[i];
+            if (nodes.get(arena.key(node)) != node) continue;
+            int moves = arena.moves(node);
+            int estimate = heuristic.estimate(arena.estimate(node));
+            lowest = Math.min(lowest, moves + estimate);
+            frontier.insert(node, 2 * moves + weight * estimate, moves);
+        }
+        return lowest;
+    }
+
+    private void addInconsistent(int node) {
+        if (inconsistentCount == inconsistent.length) {
+            inconsistent = Arrays.copyOf(inconsistent, 2 * inconsistentCount);
+        }
+        inconsistent[inconsistentCount++] = node;
+    }
+}
@@ -0,0 +1,352 @@
+/* *****************************************************************************
+ * Compilation:  javac-algs4 BatchSolver.java
+ * Execution:    java-algs4 BatchSolver puzzles [threads] [timeout-ms]
+ *                   [A_STAR | IDA_STAR | PARALLEL_A_STAR | BIDIRECTIONAL |
+ *                    DISTANCE_TABLE | ANYTIME]
+ *                   [MANHATTAN | LINEAR_CONFLICT | WALKING_DISTANCE | PATTERN_DATABASE]
+ *
+ * Solves many puzzles concurrently on a work-stealing pool. The input is a
+ * file, a directory of files, or - for standard input; each file holds
+ * one or more puzzles, in the usual text format (n followed by n^2 tiles)
+ * or PuzzleReader's binary one, and is streamed rather than loaded whole.
+ * Results are printed one line per puzzle as soon as each finishes, in
+ * completion order:
+ *
+ *     source  index  status  moves  nodes-expanded  milliseconds  [error]
+ *
+ * where error, for a FAILED puzzle only, is the exception that ended it.
+ *
+ * At most two puzzles per thread are queued or running at a time, so a
+ * slow batch holds back the reader instead of filling the heap, and a
+ * puzzle still running after the timeout is interrupted and reported as
+ * TIMED_OUT without holding up the rest. ANYTIME instead runs anytime
+ * weighted A* (ARA*) until the timeout and reports the best solution it
+ * found, which may not be the shortest; only a puzzle with none by then
+ * is TIMED_OUT. A table the heuristic or DISTANCE_TABLE needs is built or
+ * loaded before the puzzle's clock starts, as an interrupt would close
+ * the file it is read or written through, so a puzzle that waits for a
+ * first build can take longer than the timeout in all.
+ *
+ **************************************************************************** */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class BatchSolver implements AutoCloseable {
+
+    // Outcome of one puzzle
+    public enum Status { SOLVED, UNSOLVABLE, TIMED_OUT, FAILED }
+
+    // Result of one puzzle, identified by its source and position in it
+    public static final class Result {
+        private final String source;
+        private final int index;
+        private final Status status;
+        private final int moves;
+        private final long nodesExpanded;
+        private final long millis;
+        private final String error;
+
+        private Result(String source, int index, Status status, int moves,
+                       long nodesExpanded, long millis, String error) {
+            this.source = source;
+            this.index = index;
+            this.status = status;
+            this.moves = moves;
+            this.nodesExpanded = nodesExpanded;
+            this.millis = millis;
+            this.error = error;
+        }
+
+        public String source() {
+            return source;
+        }
+
+        public int index() {
+            return index;
+        }
+
+        public Status status() {
+            return status;
+        }
+
+        // moves in a shortest solution (for ANYTIME, the best found); -1
+        // unless SOLVED
+        public int moves() {
+            return moves;
+        }
+
+        public long nodesExpanded() {
+            return nodesExpanded;
+        }
+
+        public long millis() {
+            return millis;
+        }
+
+        // the exception that ended a FAILED puzzle, as its toString(); null
+        // unless FAILED
+        public String error() {
+            return error;
+        }
+
+        public String toString() {
+            String line = source + "\t" + index + "\t" + status + "\t" + moves + "\t"
+                    + nodesExpanded + "\t" + millis;
+            return error == null ? line : line + "\t" + error;
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final ScheduledThreadPoolExecutor timer;
+    private final Semaphore inFlight;
+    private final int capacity;
+    private final long timeoutMillis;
+    private final Solver.Algorithm algorithm;   // null for anytime search
+    private final String heuristic;
+    // the heuristic for each board width, built by the first job to need it
+    private final Map<Integer, FutureTask<Heuristic>> heuristics = new ConcurrentHashMap<>();
+
+    // solve on the given number of threads, giving each puzzle at most
+    // timeoutMillis (0 for no limit) with the named heuristic
+    public BatchSolver(int threads, long timeoutMillis, Solver.Algorithm algorithm,
+                       String heuristic) {
+        this(threads, timeoutMillis, algorithm, heuristic, false);
+    }
+
+    // solve on the given number of threads by anytime weighted A*, keeping
+    // for each puzzle the best solution found in timeoutMillis (0 for no
+    // limit, so the shortest) with the named heuristic, which must be
+    // consistent
+    public static BatchSolver anytime(int threads, long timeoutMillis, String heuristic) {
+        return new BatchSolver(threads, timeoutMillis, null, heuristic, true);
+    }
+
+    private BatchSolver(int threads, long timeoutMillis, Solver.Algorithm algorithm,
+                        String heuristic, boolean anytime) {
+        if (threads < 1 || timeoutMillis < 0 || (algorithm == null) != anytime
+                || heuristic == null) {
+            throw new IllegalArgumentException();
+        }
+        this.pool = new ForkJoinPool(threads);
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "batch-solver-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        this.capacity = 2 * threads;
+        this.inFlight = new Semaphore(capacity);
+        this.timeoutMillis = timeoutMillis;
+        this.algorithm = algorithm;
+        this.heuristic = heuristic;
+    }
+
+    // Queue a puzzle, waiting while the pool is full; sink receives its
+    // result on a pool thread
+    public void submit(String source, int index, Board board, Consumer<Result> sink)
+            throws InterruptedException {
+        if (board == null || sink == null) throw new IllegalArgumentException();
+        inFlight.acquire();
+        pool.execute(new Job(source, index, board, sink));
+    }
+
+    // wait for every submitted puzzle, then stop the threads
+    public void close() {
+        inFlight.acquireUninterruptibly(capacity);
+        pool.shutdown();
+        timer.shutdownNow();
+    }
+
+    private class Job implements Runnable {
+        private final String source;
+        private final int index;
+        private final Board board;
+        private final Consumer<Result> sink;
+        private Thread runner;       // set while running, guarded by this
+        private boolean timedOut;    // guarded by this
+
+        Job(String source, int index, Board board, Consumer<Result> sink) {
+            this.source = source;
+            this.index = index;
+            this.board = board;
+            this.sink = sink;
+        }
+
+        public void run() {
+            try {
+                sink.accept(prepareAndSolve());
+            }
+            finally {
+                inFlight.release();
+            }
+        }
+
+        // load the tables, then solve under the timeout
+        private Result prepareAndSolve() {
+            long start = System.nanoTime();
+            Heuristic h;
+            try {
+                h = heuristic(board.dimension());
+                if (algorithm == Solver.Algorithm.DISTANCE_TABLE && board.dimension() == 3) {
+                    DistanceTable.shared();
+                }
+            }
+            catch (RuntimeException | OutOfMemoryError e) {
+                return new Result(source, index, Status.FAILED, -1, 0, elapsed(start),
+                                  e.toString());
+            }
+
+            start = System.nanoTime();
+            ScheduledFuture<?> timeout = null;
+            try {
+                synchronized (this) {
+                    runner = Thread.currentThread();
+                }
+                // anytime search keeps to the time limit itself
+                if (timeoutMillis > 0 && algorithm != null) {
+                    timeout = timer.schedule(this::timeOut, timeoutMillis, TimeUnit.MILLISECONDS);
+                }
+                return solve(h, start);
+            }
+            finally {
+                if (timeout != null) timeout.cancel(false);
+                // the timer interrupts only while runner is set, so after
+                // this no interrupt can reach the pool thread's next job
+                synchronized (this) {
+                    runner = null;
+                    if (timedOut) Thread.interrupted();
+                }
+            }
+        }
+
+        private Result solve(Heuristic h, long start) {
+            try {
+                Solver solver;
+                if (algorithm != null) {
+                    solver = new Solver(board, algorithm, h);
+                }
+                else {
+                    long millis = timeoutMillis > 0 ? timeoutMillis : Long.MAX_VALUE;
+                    solver = new Solver(board, h, millis, Long.MAX_VALUE);
+                }
+                Status status = !solver.isSolvable() ? Status.UNSOLVABLE
+                        : solver.moves() < 0 ? Status.TIMED_OUT : Status.SOLVED;
+                return new Result(source, index, status, solver.moves(), solver.nodesExpanded(),
+                                  elapsed(start), null);
+            }
+            catch (CancellationException e) {
+                return new Result(source, index, Status.TIMED_OUT, -1, 0, elapsed(start), null);
+            }
+            catch (RuntimeException | OutOfMemoryError e) {
+                return new Result(source, index, Status.FAILED, -1, 0, elapsed(start),
+                                  e.toString());
+            }
+        }
+
+        private synchronized void timeOut() {
+            if (runner != null) {
+                timedOut = true;
+                runner.interrupt();
+            }
+        }
+    }
+
+    // The heuristic for boards of width n. The first job to need it builds
+    // it, outside any lock of the map, while later ones wait; a failed
+    // build is dropped, for the next job to try again.
+    private Heuristic heuristic(int n) {
+        FutureTask<Heuristic> task = new FutureTask<>(() -> Solver.heuristic(heuristic, n));
+        FutureTask<Heuristic> built = heuristics.putIfAbsent(n, task);
+        if (built == null) {
+            built = task;
+            task.run();
+        }
+        try {
+            return built.get();
+        }
+        catch (ExecutionException e) {
+            heuristics.remove(n, built);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        }
+    }
+
+    private static long elapsed(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    // files to read for a path: the file itself, or a directory's regular
+    // files in name order
+    private static List<Path> inputs(Path path) {
+        if (!Files.isDirectory(path)) return List.of(path);
+        try (Stream<Path> files = Files.list(path)) {
+            return files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // submit every puzzle from reader, numbered from 0 within source, and
+    // close it
+    private static void submitAll(BatchSolver batch, String source, PuzzleReader reader,
+                                  Consumer<Result> sink) throws InterruptedException {
+        try (reader) {
+            for (int index = 0; reader.hasNext(); index++) {
+                batch.submit(source, index, reader.next(), sink);
+            }
+        }
+    }
+
+    // test client (see header)
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                                      : Runtime.getRuntime().availableProcessors();
+        long timeout = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        String algorithm = args.length > 3 ? args[3] : "A_STAR";
+        String heuristic = args.length > 4 ? args[4] : "MANHATTAN";
+
+        Consumer<Result> print = System.out::println;
+        BatchSolver batch = algorithm.equals("ANYTIME")
+                ? anytime(threads, timeout, heuristic)
+                : new BatchSolver(threads, timeout, Solver.Algorithm.valueOf(algorithm), heuristic);
+        try {
+            if (args[0].equals("-")) {
+                submitAll(batch, "-", new PuzzleReader(Channels.newChannel(System.in)), print);
+            }
+            else {
+                for (Path file : inputs(Paths.get(args[0]))) {
+                    submitAll(batch, file.toString(), PuzzleReader.open(file), print);
+                }
+            }
+        }
+        finally {
+            batch.close();
+        }
+    }
+}
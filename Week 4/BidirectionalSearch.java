@@ -0,0 +1,216 @@
+/* *****************************************************************************
+ * Compilation:  javac-algs4 BidirectionalSearch.java
+ *
+ * Bidirectional heuristic search for the sliding puzzle using MM (Holte
+ * et al., "Bidirectional search that is guaranteed to meet in the
+ * middle"): one frontier grows forward from the initial board, the other
+ * backward from the goal, and each node is ordered by
+ * pr = max(g + h, 2g), so neither side expands a node beyond half the
+ * optimal number of moves. Each side maps board keys to its best node in
+ * a LongIntTable; a child whose key the other side holds is a meeting,
+ * and the cheapest one found so far, U, is the best solution so far. Once
+ * U is at most the smaller of the two sides' minimum priorities no
+ * cheaper meeting remains, so the solution is optimal.
+ *
+ * The forward side is guided by the given heuristic. The backward side
+ * needs estimates of distances to the initial board, which that heuristic
+ * does not give, so it uses the Manhattan distance to the initial board.
+ *
+ * Like AStar, an instance keeps its arenas, queues and tables between
+ * solves, a solve polls its thread's interrupt flag, and it counts its
+ * work into a SearchMetrics.
+ *
+ **************************************************************************** */
+
+import java.util.concurrent.CancellationException;
+
+class BidirectionalSearch {
+
+    private static final int RETAINED_TABLE_SIZE = 1 << 20;
+    private static final int INTERRUPT_CHECK_MASK = 0xFFF;
+
+    private final Side forward = new Side();
+    private final Side backward = new Side();
+    private int width;
+    private int[] tiles = new int[0];
+    private int[] compared = new int[0];  // boards compared at a meeting
+    private int[] comparedOther = new int[0];
+    private final SearchMetrics metrics = new SearchMetrics();   // of the last solve
+
+    // best meeting: U moves via node meetForward and node meetBackward
+    private int best;
+    private int meetForward;
+    private int meetBackward;
+
+    // one direction's frontier and the best node for each board it reached
+    private static final class Side {
+        final NodeArena arena = new NodeArena();
+        final BucketQueue frontier = new BucketQueue();
+        LongIntTable nodes = new LongIntTable();
+        Heuristic heuristic;   // estimates distances to this side's target
+
+        void reset(int width, Heuristic toTarget) {
+            heuristic = toTarget;
+            arena.reset(width);
+            frontier.clear();
+            if (nodes.size() > RETAINED_TABLE_SIZE) {
+                nodes = new LongIntTable();
+            }
+            else {
+                nodes.clear();
+            }
+        }
+
+        // smallest priority on the frontier; unbounded once it is empty
+        int minPriority() {
+            return frontier.isEmpty() ? Integer.MAX_VALUE : frontier.minPriority();
+        }
+
+        long footprint() {
+            return arena.footprint() + frontier.footprint() + nodes.footprint();
+        }
+
+        void add(int node, int g, int h) {
+            nodes.put(arena.key(node), node);
+            frontier.insert(node, Math.max(g + h, 2 * g), g);
+        }
+    }
+
+    // blank directions of a shortest solution from initial, which must be
+    // solvable, guided by the admissible heuristic
+    byte[] solve(Board initial, Heuristic heuristic) {
+        width = initial.dimension();
+        int size = width * width;
+        forward.reset(width, heuristic);
+        backward.reset(width, new ManhattanHeuristic(initial));
+        if (tiles.length != size) {
+            tiles = new int[size];
+            compared = new int[size];
+            comparedOther = new int[size];
+        }
+        metrics.reset();
+        best = Integer.MAX_VALUE;
+
+        initial.copyTo(tiles);
+        int start = forward.arena.addRoot(initial, heuristic.evaluate(tiles));
+        forward.add(start, 0, heuristic.estimate(forward.arena.estimate(start)));
+
+        Board goal = Board.goal(width);
+        goal.copyTo(tiles);
+        int end = backward.arena.addRoot(goal, backward.heuristic.evaluate(tiles));
+        backward.add(end, 0, backward.heuristic.estimate(backward.arena.estimate(end)));
+        meet(forward, start, backward);
+
+        while (best > Math.min(forward.minPriority(), backward.minPriority())) {
+            // expand the side whose frontier has the lower priority
+            if (forward.minPriority() <= backward.minPriority()) {
+                expand(forward, backward);
+            }
+            else {
+                expand(backward, forward);
+            }
+        }
+
+        metrics.footprint = forward.footprint() + backward.footprint();
+
+        // forward moves to the meeting board, then the backward moves to
+        // it undone in reverse order
+        byte[] head = forward.arena.path(meetForward);
+        byte[] tail = backward.arena.path(meetBackward);
+        byte[] path = new byte[head.length + tail.length];
+        System.arraycopy(head, 0, path, 0, head.length);
+        for (int i = 0; i < tail.length; i++) {
+            path[head.length + i] = (byte) (tail[tail.length - 1 - i] ^ 1);
+        }
+        return path;
+    }
+
+    // nodes expanded by the last solve, in both directions
+    long expanded() {
+        return metrics.expanded;
+    }
+
+    // counts of the last solve, in both directions; the peak frontier is
+    // that of both sides together
+    SearchMetrics metrics() {
+        return metrics;
+    }
+
+    private void expand(Side side, Side other) {
+        NodeArena arena = side.arena;
+        int node = side.frontier.delMin();
+        long key = arena.key(node);
+
+        // skip nodes superseded by a cheaper path to the same board
+        if (side.nodes.get(key) != node) {
+            metrics.duplicates++;
+            return;
+        }
+
+        if ((++metrics.expanded & INTERRUPT_CHECK_MASK) == 0) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("search interrupted");
+            }
+            metrics.progress(forward.frontier.size() + backward.frontier.size());
+        }
+
+        int blank = arena.load(node, tiles);
+
+        int moves = arena.moves(node);
+        int estimate = arena.estimate(node);
+        int previous = arena.lastMove(node);
+        for (int direction = Board.LEFT; direction <= Board.DOWN; direction++) {
+            if (direction == (previous ^ 1)) continue;
+            int target = Board.target(blank, direction, width);
+            if (target < 0) continue;
+
+            int tile = tiles[target];
+            long childKey = Board.moveKey(key, width, tile, target, blank);
+            int existing = side.nodes.get(childKey);
+            if (existing >= 0 && arena.moves(existing) <= moves + 1) {
+                metrics.duplicates++;
+                continue;
+            }
+
+            // slide the scratch copy to the child and back
+            tiles[blank] = tile;
+            tiles[target] = 0;
+            int childEstimate = side.heuristic.update(tiles, estimate, tile, target, blank);
+            tiles[target] = tile;
+            tiles[blank] = 0;
+
+            int child = arena.addChild(node, childKey, tile, target, blank,
+                                       moves + 1, childEstimate, direction);
+            side.add(child, moves + 1, side.heuristic.estimate(childEstimate));
+            metrics.generated++;
+            meet(side, child, other);
+        }
+        metrics.frontier(forward.frontier.size() + backward.frontier.size());
+    }
+
+    // record a cheaper solution if the other side has reached node's board
+    private void meet(Side side, int node, Side other) {
+        long key = side.arena.key(node);
+        int match = other.nodes.get(key);
+        if (match < 0) return;
+        int moves = side.arena.moves(node) + other.arena.moves(match);
+        if (moves >= best) return;
+
+        // wide boards' keys are hashes, so compare their tiles as well
+        if (width > Board.MAX_PACKED_WIDTH && !sameBoard(side.arena, node, other.arena, match)) {
+            return;
+        }
+        best = moves;
+        meetForward = side == forward ? node : match;
+        meetBackward = side == forward ? match : node;
+    }
+
+    private boolean sameBoard(NodeArena a, int p, NodeArena b, int q) {
+        a.load(p, compared);
+        b.load(q, comparedOther);
+        for (int cell = 0; cell < compared.length; cell++) {
+            if (compared[cell] != comparedOther[cell]) return false;
+        }
+        return true;
+    }
+}
@@ -10,12 +10,26 @@
 import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.Queue;
 
+import java.util.Arrays;
+
 public class Board {
 
-    private final int[][] board;
+    // Blank moves, in the order neighbors() reports them; d ^ 1 undoes d
+    public static final int LEFT = 0;
+    public static final int RIGHT = 1;
+    public static final int UP = 2;
+    public static final int DOWN = 3;
+
+    // Widest board whose tiles fit in one long at 4 bits per tile
+    static final int MAX_PACKED_WIDTH = 4;
+
     private final int width;
-    private int zeroX;
-    private int zeroY;
+    private final long packed;     // tile per nibble, row-major, if width <= 4;
+                                   // otherwise a Zobrist hash of cells
+    private final byte[] cells;    // unsigned tile per byte (two above 16x16), or null
+    private final int blank;       // row-major index of the 0 tile
+    private final int hamming;
+    private final int manhattan;
 
 
     // create a board from an n-by-n array of tiles,
@@ -27,18 +41,210 @@ public class Board {
         }
 
         width = tiles[0].length;
-        this.board = new int[width][width];
 
+        long packedTiles = 0;
+        byte[] cellTiles = width > MAX_PACKED_WIDTH ? new byte[width * width * bytesPerTile(width)]
+                                                    : null;
+        int zero = 0;
+        int hammingCount = 0;
+        int manhattanCount = 0;
 
         for (int x = 0; x < width; x++) {
             for (int y = 0; y < width; y++) {
-                if (tiles[x][y] == 0) {
-                    zeroX = x;
-                    zeroY = y;
+                int cell = x * width + y;
+                int tile = tiles[x][y];
+                if (tile == 0) {
+                    zero = cell;
+                }
+                else {
+                    if (tile != cell + 1) hammingCount++;
+                    manhattanCount += distance(tile, cell);
+                }
+
+                if (cellTiles == null) {
+                    packedTiles |= (long) tile << (cell << 2);
+                }
+                else {
+                    writeTile(cellTiles, width, cell, tile);
+                    if (tile != 0) packedTiles ^= code(cell, tile);
                 }
-                board[x][y] = tiles[x][y];
             }
         }
+
+        this.packed = packedTiles;
+        this.cells = cellTiles;
+        this.blank = zero;
+        this.hamming = hammingCount;
+        this.manhattan = manhattanCount;
+    }
+
+    // board reached from parent by sliding the tile at target into the blank;
+    // both heuristics are updated from the single tile that moved
+    private Board(Board parent, int target) {
+        width = parent.width;
+
+        int tile = parent.tileAt(target);
+        int from = target;
+        int to = parent.blank;
+
+        this.packed = moveKey(parent.packed, width, tile, from, to);
+        if (parent.cells == null) {
+            this.cells = null;
+        }
+        else {
+            this.cells = parent.cells.clone();
+            writeTile(cells, width, from, 0);
+            writeTile(cells, width, to, tile);
+        }
+
+        this.blank = from;
+        this.hamming = parent.hamming - (tile != from + 1 ? 1 : 0) + (tile != to + 1 ? 1 : 0);
+        this.manhattan = parent.manhattan - distance(tile, from) + distance(tile, to);
+    }
+
+    // bytes per tile of boards wider than MAX_PACKED_WIDTH
+    static int bytesPerTile(int width) {
+        return width * width > 256 ? 2 : 1;
+    }
+
+    private static void writeTile(byte[] a, int width, int cell, int tile) {
+        if (bytesPerTile(width) == 1) {
+            a[cell] = (byte) tile;
+        }
+        else {
+            a[2 * cell] = (byte) (tile >>> 8);
+            a[2 * cell + 1] = (byte) tile;
+        }
+    }
+
+    // Zobrist code of tile at cell; mixed from its arguments instead of
+    // drawn from a random table so any board width works without setup
+    private static long code(int cell, int tile) {
+        long z = ((long) cell << 32 | tile) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // tile stored at row-major index cell of a packed board
+    static int tile(long packed, int cell) {
+        return (int) (packed >>> (cell << 2)) & 0xF;
+    }
+
+    // key() of the board reached from the one with the given key by sliding
+    // tile from cell from into the blank at cell to
+    static long moveKey(long key, int width, int tile, int from, int to) {
+        if (width <= MAX_PACKED_WIDTH) {
+            return key & ~(0xFL << (from << 2)) | (long) tile << (to << 2);
+        }
+        return key ^ code(from, tile) ^ code(to, tile);
+    }
+
+    // tile at row-major index cell
+    int tileAt(int cell) {
+        if (cells == null) {
+            return tile(packed, cell);
+        }
+        if (bytesPerTile(width) == 1) {
+            return cells[cell] & 0xFF;
+        }
+        return (cells[2 * cell] & 0xFF) << 8 | (cells[2 * cell + 1] & 0xFF);
+    }
+
+    // the n-by-n goal board
+    static Board goal(int width) {
+        int[][] tiles = new int[width][width];
+        for (int cell = 0; cell < width * width - 1; cell++) {
+            tiles[cell / width][cell % width] = cell + 1;
+        }
+        return new Board(tiles);
+    }
+
+    // the board mirrored in its main diagonal, each tile renamed after its
+    // mirrored goal cell: the goal maps to itself and a blank move d to
+    // d ^ 2 (LEFT to UP, RIGHT to DOWN), so both boards need as many moves
+    Board transpose() {
+        int[][] tiles = new int[width][width];
+        for (int cell = 0; cell < width * width; cell++) {
+            int tile = tileAt(cell);
+            if (tile != 0) tile = (tile - 1) % width * width + (tile - 1) / width + 1;
+            tiles[cell % width][cell / width] = tile;
+        }
+        return new Board(tiles);
+    }
+
+    // copy the tiles, row-major, into the first n^2 entries of tiles
+    void copyTo(int[] tiles) {
+        for (int cell = 0; cell < width * width; cell++) {
+            tiles[cell] = tileAt(cell);
+        }
+    }
+
+    // row-major index of the blank
+    int blankIndex() {
+        return blank;
+    }
+
+    // cell the blank moves to in the given direction; -1 if off the board
+    static int target(int blank, int direction, int width) {
+        switch (direction) {
+            case LEFT:
+                return blank % width > 0 ? blank - 1 : -1;
+            case RIGHT:
+                return blank % width < width - 1 ? blank + 1 : -1;
+            case UP:
+                return blank >= width ? blank - width : -1;
+            case DOWN:
+                return blank < width * (width - 1) ? blank + width : -1;
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+
+    // board after moving the blank in the given direction
+    public Board move(int direction) {
+        int target = target(blank, direction, width);
+        if (target < 0) throw new IllegalArgumentException();
+        return new Board(this, target);
+    }
+
+    // can the goal be reached from this board? Every move swaps the blank
+    // with a neighbor, flipping the parity of the permutation and of the
+    // blank's Manhattan distance from its goal cell together, so the two
+    // parities agree exactly on the boards reachable from the goal. This is
+    // the inversion-count and blank-row rule, computed in O(n^2) by
+    // counting the permutation's cycles rather than its inversions.
+    boolean isSolvable() {
+        int size = width * width;
+        boolean[] visited = new boolean[size];
+        int transpositions = 0;
+        for (int start = 0; start < size; start++) {
+            if (visited[start]) continue;
+            // a cycle of length k is k - 1 transpositions; the blank is
+            // treated as tile n^2, whose goal cell is the last one
+            int length = 0;
+            for (int cell = start; !visited[cell]; length++) {
+                visited[cell] = true;
+                int tile = tileAt(cell);
+                cell = tile == 0 ? size - 1 : tile - 1;
+            }
+            transpositions += length - 1;
+        }
+        int blankDistance = (width - 1 - blank / width) + (width - 1 - blank % width);
+        return (transpositions + blankDistance) % 2 == 0;
+    }
+
+    // compact 64-bit key: the packed tiles themselves up to 4x4, which
+    // identify the board exactly among boards of the same width, and a
+    // Zobrist hash (collisions possible, if unlikely) above that
+    public long key() {
+        return packed;
+    }
+
+    // Manhattan distance of tile from its goal position when it sits at cell
+    private int distance(int tile, int cell) {
+        int goal = tile - 1;
+        return Math.abs(cell / width - goal / width) + Math.abs(cell % width - goal % width);
     }
 
     // string representation of this board
@@ -47,7 +253,7 @@ public class Board {
         s.append(width + "\n");
         for (int i = 0; i < width; i++) {
             for (int j = 0; j < width; j++) {
-                s.append(String.format("%2d ", board[i][j]));
+                s.append(String.format("%2d ", tileAt(i * width + j)));
             }
             s.append("\n");
         }
@@ -61,40 +267,18 @@ public class Board {
 
     // number of tiles out of place
     public int hamming() {
-        int hammingCount = 0;
-        int tilePosition = 1;
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < width; y++) {
-                if (board[x][y] != tilePosition && board[x][y] != 0) {
-                    hammingCount++;
-                }
-                tilePosition++;
-            }
-        }
-        return hammingCount;
+        return hamming;
     }
 
     // sum of Manhattan distances between tiles and goal
     public int manhattan() {
-        int manhattanCount = 0;
-
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < width; y++) {
-                int tilePosition = board[x][y];
-                if (tilePosition != 0) {
-                    int expectedX = (tilePosition - 1) / width;
-                    int expectedY = tilePosition - 1 - (expectedX * width);
-                    manhattanCount += Math.abs(x - expectedX) + Math.abs(y - expectedY);
-                }
-            }
-        }
-        return manhattanCount;
+        return manhattan;
     }
 
 
     // is this board the goal board?
     public boolean isGoal() {
-        return hamming() == 0;
+        return hamming == 0;
     }
 
     // does this board equal y?
@@ -104,13 +288,22 @@ public class Board {
         if (y.getClass() != this.getClass()) return false;
         Board that = (Board) y;
         if (that.dimension() != this.dimension()) return false;
+        if (this.blank != that.blank || this.manhattan != that.manhattan) return false;
+        return this.packed == that.packed && Arrays.equals(this.cells, that.cells);
+    }
+
+    public int hashCode() {
+        return 31 * width + Long.hashCode(packed);
+    }
+
+    // unpacked copy of the tiles
+    private int[][] tiles() {
+        int[][] tiles = new int[width][width];
         for (int i = 0; i < width; i++) {
             for (int j = 0; j < width; j++)
-                if (this.board[i][j] != that.board[i][j]) {
-                    return false;
-                }
+                tiles[i][j] = tileAt(i * width + j);
         }
-        return true;
+        return tiles;
     }
 
     private static void swap(int[][] a, int x1, int y1, int x2, int y2) {
@@ -123,56 +316,35 @@ public class Board {
     // all neighboring boards
     public Iterable<Board> neighbors() {
         Queue<Board> neighbors = new Queue<Board>();
+        forEachNeighbor(-1, (direction, key, tile, from, to, hammingDelta, manhattanDelta) ->
+                neighbors.enqueue(new Board(this, from)));
+        return neighbors;
+    }
 
-        // Clone Reference Board in 2d
-        int[][] referenceBoard = new int[width][width];
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < width; j++)
-                referenceBoard[i][j] = board[i][j];
-        }
-
-        // Left
-        if (zeroY - 1 >= 0) {
-            swap(referenceBoard, zeroX, zeroY, zeroX, zeroY - 1);
-            neighbors.enqueue(new Board(referenceBoard));
-            swap(referenceBoard, zeroX, zeroY, zeroX, zeroY - 1);
-        }
-        // Right
-        if (zeroY + 1 < width) {
-            swap(referenceBoard, zeroX, zeroY, zeroX, zeroY + 1);
-            neighbors.enqueue(new Board(referenceBoard));
-            swap(referenceBoard, zeroX, zeroY, zeroX, zeroY + 1);
-        }
-        // Up
-        if (zeroX - 1 >= 0) {
-            swap(referenceBoard, zeroX, zeroY, zeroX
-                    - 1, zeroY);
-            neighbors.enqueue(new Board(referenceBoard));
-            swap(referenceBoard, zeroX, zeroY, zeroX
-                    - 1, zeroY);
-        }
-        // Down
-        if (zeroX + 1 < width) {
-            swap(referenceBoard, zeroX, zeroY, zeroX
-                    + 1, zeroY);
-            neighbors.enqueue(new Board(referenceBoard));
-            swap(referenceBoard, zeroX, zeroY, zeroX
-                    + 1, zeroY);
+    // Report each legal blank move, Left, Right, Up, Down, to visitor
+    // without building the neighbor, skipping the move that undoes the
+    // blank move previous (-1 to skip none); returns the moves reported.
+    public int forEachNeighbor(int previous, NeighborVisitor visitor) {
+        int count = 0;
+        for (int direction = LEFT; direction <= DOWN; direction++) {
+            if (direction == (previous ^ 1)) continue;
+            int target = target(blank, direction, width);
+            if (target < 0) continue;
+
+            int tile = tileAt(target);
+            visitor.visit(direction, moveKey(packed, width, tile, target, blank), tile,
+                          target, blank,
+                          (tile != blank + 1 ? 1 : 0) - (tile != target + 1 ? 1 : 0),
+                          distance(tile, blank) - distance(tile, target));
+            count++;
         }
-
-        return neighbors;
+        return count;
     }
 
     // a board that is obtained by exchanging any pair of tiles
     public Board twin() {
 
-        int[][] twin = new int[width][width];
-
-        // Copy Board
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < width; j++)
-                twin[i][j] = board[i][j];
-        }
+        int[][] twin = tiles();
 
         // Find Two Non Zero Number
         int count = 2;
@@ -247,4 +419,3 @@ public class Board {
 
     }
 }
-
@@ -0,0 +1,112 @@
+/* *****************************************************************************
+ * Compilation:  javac-algs4 BucketQueue.java
+ *
+ * Min priority queue of int items for small non-negative integer
+ * priorities, such as the f = g + h of a puzzle search. Items sit in one
+ * stack per (f, g) pair; delMin() takes from the lowest f, and within it
+ * from the highest g, so ties go to the nodes nearest the goal. Insert and
+ * delMin are O(1) amortized, as long as f does not jump far upwards.
+ *
+ **************************************************************************** */
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+class BucketQueue {
+
+    private int[][] buckets;   // bucket (f, g) at f * (f + 1) / 2 + g
+    private int[] sizes;       // items in each bucket
+    private int[] perF;        // items with each f
+    private int[] topG;        // no bucket of f above g = topG[f] is non-empty
+    private int minF;          // no item has a smaller f
+    private int n;             // number of items
+
+    // create an empty queue
+    BucketQueue() {
+        allocate(64);
+    }
+
+    private void allocate(int fCapacity) {
+        buckets = new int[fCapacity * (fCapacity + 1) / 2][];
+        sizes = new int[buckets.length];
+        perF = new int[fCapacity];
+        topG = new int[fCapacity];
+        minF = fCapacity;
+        n = 0;
+    }
+
+    boolean isEmpty() {
+        return n == 0;
+    }
+
+    int size() {
+        return n;
+    }
+
+    // approximate bytes of the buckets and their index arrays
+    long footprint() {
+        long bytes = (long) buckets.length * (Integer.BYTES + 4) + 2L * perF.length * Integer.BYTES;
+        for (int[] bucket : buckets) {
+            if (bucket != null) bytes += (long) bucket.length * Integer.BYTES;
+        }
+        return bytes;
+    }
+
+    // remove every item, keeping the allocated buckets
+    void clear() {
+        Arrays.fill(sizes, 0);
+        Arrays.fill(perF, 0);
+        Arrays.fill(topG, 0);
+        minF = perF.length;
+        n = 0;
+    }
+
+    // add item with priority f, ordered among equal f by g, 0 <= g <= f
+    void insert(int item, int f, int g) {
+        if (g < 0 || g > f) throw new IllegalArgumentException();
+        if (f >= perF.length) grow(f);
+
+        int bucket = f * (f + 1) / 2 + g;
+        if (buckets[bucket] == null) {
+            buckets[bucket] = new int[16];
+        }
+        else if (sizes[bucket] == buckets[bucket].length) {
+            buckets[bucket] = Arrays.copyOf(buckets[bucket], 2 * sizes[bucket]);
+        }
+        buckets[bucket][sizes[bucket]++] = item;
+
+        perF[f]++;
+        if (g > topG[f]) topG[f] = g;
+        if (f < minF) minF = f;
+        n++;
+    }
+
+    // smallest priority in the queue
+    int minPriority() {
+        if (n == 0) throw new NoSuchElementException();
+        while (perF[minF] == 0) minF++;
+        return minF;
+    }
+
+    // remove and return an item of smallest f, with the largest g among them
+    int delMin() {
+        int f = minPriority();
+        int base = f * (f + 1) / 2;
+        while (sizes[base + topG[f]] == 0) topG[f]--;
+        int bucket = base + topG[f];
+
+        perF[f]--;
+        n--;
+        return buckets[bucket][--sizes[bucket]];
+    }
+
+    private void grow(int f) {
+        int capacity = perF.length;
+        while (capacity <= f) capacity *= 2;
+        buckets = Arrays.copyOf(buckets, capacity * (capacity + 1) / 2);
+        sizes = Arrays.copyOf(sizes, buckets.length);
+        perF = Arrays.copyOf(perF, capacity);
+        topG = Arrays.copyOf(topG, capacity);
+        if (n == 0) minF = capacity;
+    }
+}
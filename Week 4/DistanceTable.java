@@ -0,0 +1,294 @@
+/* *****************************************************************************
+ * Compilation:  javac-algs4 DistanceTable.java
+ *
+ * The exact number of moves to the goal from every solvable 3x3 board,
+ * found by one breadth-first search back from the goal. A board is
+ * indexed by its blank's cell and the rank of its tiles' order: the
+ * Lehmer code of tiles 1 to 8, row-major, without its last digit, which
+ * the even parity of every solvable 3x3 order makes redundant. That
+ * numbers the 9 * 8! / 2 = 181,440 solvable boards densely, and since no
+ * board is more than 31 moves away each distance takes 5 bits, about
+ * 110 KB in all.
+ *
+ * The table is written once to a file under the cache directory and
+ * memory-mapped on every later load. Solving is then a descent: from
+ * each board, move to the neighbor one move closer, with no search.
+ *
+ **************************************************************************** */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class DistanceTable implements Heuristic {
+
+    private static final int MAGIC = 0x44535431;   // "DST1"
+    private static final int WIDTH = 3;
+    private static final int CELLS = WIDTH * WIDTH;
+    private static final int ORDERS = 20160;       // 8! / 2 orders of the tiles
+    private static final int BOARDS = CELLS * ORDERS;
+    private static final int BITS = 5;
+    private static final int HEADER = 2 * Integer.BYTES;
+    // packed bytes, plus one so that every entry can be read as two bytes
+    private static final int PACKED = (BOARDS * BITS + 7) / 8 + 1;
+
+    // weight of each of the first six Lehmer digits, (7 - i)! / 2
+    private static final int[] WEIGHTS = { 2520, 360, 60, 12, 3, 1 };
+    private static final int GOAL = index(goalTiles());
+
+    private final MappedByteBuffer table;
+
+    private DistanceTable(MappedByteBuffer table) {
+        this.table = table;
+    }
+
+    // the shared table, once a load of it has succeeded; a failed load
+    // is tried again by the next call
+    private static volatile DistanceTable shared;
+
+    // the table kept under the directory named by the puzzle.cache.dir
+    // system property (the temporary directory if unset), built there by
+    // the first call if missing; throws UncheckedIOException if that file
+    // can be neither read nor written
+    public static DistanceTable shared() {
+        DistanceTable table = shared;
+        if (table != null) return table;
+        synchronized (DistanceTable.class) {
+            if (shared == null) {
+                shared = open(PatternDatabase.cacheDirectory().resolve("distances-3x3.bin"));
+            }
+            return shared;
+        }
+    }
+
+    // forget the shared table, so that the next call loads it again; for
+    // tests
+    static synchronized void forgetShared() {
+        shared = null;
+    }
+
+    // the table mapped from file, which is built first if it is missing or
+    // is not a distance table
+    public static DistanceTable open(Path file) {
+        if (file == null) throw new IllegalArgumentException();
+        try {
+            if (!Files.exists(file) || !matches(file)) {
+                write(file);
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                return new DistanceTable(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                                     channel.size()));
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean matches(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != HEADER + PACKED) return false;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            return buffer.getInt() == MAGIC && buffer.getInt() == BOARDS;
+        }
+    }
+
+    // build the table and write the file through a temporary sibling, so
+    // a concurrent or interrupted build never leaves a partial file
+    private static void write(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER + PACKED);
+            buffer.putInt(MAGIC).putInt(BOARDS).put(pack(build()));
+            Files.write(temp, buffer.array());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // breadth-first search from the goal over board indices
+    private static byte[] build() {
+        byte[] distances = new byte[BOARDS];
+        Arrays.fill(distances, (byte) -1);
+        int[] queue = new int[BOARDS];
+        int[] tiles = new int[CELLS];
+
+        int goal = index(goalTiles());
+        distances[goal] = 0;
+        queue[0] = goal;
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            int board = queue[head++];
+            int blank = tiles(board, tiles);
+            for (int direction = Board.LEFT; direction <= Board.DOWN; direction++) {
+                int target = Board.target(blank, direction, WIDTH);
+                if (target < 0) continue;
+                tiles[blank] = tiles[target];
+                tiles[target] = 0;
+                int neighbor = index(tiles);
+                if (distances[neighbor] < 0) {
+                    distances[neighbor] = (byte) (distances[board] + 1);
+                    queue[tail++] = neighbor;
+                }
+                tiles[target] = tiles[blank];
+                tiles[blank] = 0;
+            }
+        }
+        return distances;
+    }
+
+    private static byte[] pack(byte[] distances) {
+        byte[] packed = new byte[PACKED];
+        for (int i = 0; i < distances.length; i++) {
+            int bit = i * BITS;
+            int value = distances[i] << (bit & 7);
+            packed[bit >>> 3] |= (byte) value;
+            packed[(bit >>> 3) + 1] |= (byte) (value >>> 8);
+        }
+        return packed;
+    }
+
+    private static int[] goalTiles() {
+        int[] tiles = new int[CELLS];
+        for (int cell = 0; cell < CELLS - 1; cell++) {
+            tiles[cell] = cell + 1;
+        }
+        return tiles;
+    }
+
+    // index of the solvable board with the given row-major tiles
+    private static int index(int[] tiles) {
+        int blank = 0;
+        int rank = 0;
+        int digit = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            if (tiles[cell] == 0) {
+                blank = cell;
+                continue;
+            }
+            if (digit == WEIGHTS.length) continue;
+            int smaller = 0;
+            for (int later = cell + 1; later < CELLS; later++) {
+                if (tiles[later] != 0 && tiles[later] < tiles[cell]) smaller++;
+            }
+            rank += smaller * WEIGHTS[digit++];
+        }
+        return blank * ORDERS + rank;
+    }
+
+    // fill tiles with the board at index and return its blank's cell
+    private static int tiles(int index, int[] tiles) {
+        int blank = index / ORDERS;
+        int rank = index % ORDERS;
+        boolean[] used = new boolean[CELLS];
+        int[] order = new int[CELLS - 1];
+        int inversions = 0;
+        for (int i = 0; i < WEIGHTS.length; i++) {
+            int smaller = rank / WEIGHTS[i];
+            rank %= WEIGHTS[i];
+            inversions += smaller;
+            order[i] = unused(used, smaller);
+        }
+        // the last two tiles go in the order that makes the parity even
+        int a = unused(used, 0);
+        int b = unused(used, 0);
+        order[6] = inversions % 2 == 0 ? a : b;
+        order[7] = inversions % 2 == 0 ? b : a;
+
+        for (int cell = 0, i = 0; cell < CELLS; cell++) {
+            tiles[cell] = cell == blank ? 0 : order[i++];
+        }
+        return blank;
+    }
+
+    // mark and return the unused tile with the given number of smaller
+    // unused tiles
+    private static int unused(boolean[] used, int smaller) {
+        for (int tile = 1; ; tile++) {
+            if (!used[tile] && smaller-- == 0) {
+                used[tile] = true;
+                return tile;
+            }
+        }
+    }
+
+    private int lookup(int index) {
+        int bit = index * BITS;
+        int offset = HEADER + (bit >>> 3);
+        int window = (table.get(offset) & 0xFF) | (table.get(offset + 1) & 0xFF) << 8;
+        return (window >>> (bit & 7)) & ((1 << BITS) - 1);
+    }
+
+    public int dimension() {
+        return WIDTH;
+    }
+
+    // exact moves from the solvable row-major tiles to the goal
+    public int evaluate(int[] tiles) {
+        return lookup(index(tiles));
+    }
+
+    public int update(int[] tiles, int value, int tile, int from, int to) {
+        return evaluate(tiles);
+    }
+
+    // fewest moves from the solvable 3x3 board to the goal
+    public int distance(Board board) {
+        if (board.dimension() != WIDTH || !board.isSolvable()) {
+            throw new IllegalArgumentException();
+        }
+        int[] tiles = new int[CELLS];
+        board.copyTo(tiles);
+        return evaluate(tiles);
+    }
+
+    // blank directions of a shortest solution from the solvable 3x3 board,
+    // each to the neighbor one move closer to the goal; throws
+    // IllegalStateException if the table has no such descent, which only
+    // a corrupt file can cause
+    byte[] solve(Board board) {
+        int remaining = distance(board);
+        int[] tiles = new int[CELLS];
+        board.copyTo(tiles);
+        int blank = board.blankIndex();
+
+        byte[] path = new byte[remaining];
+        for (int i = 0; i < path.length; i++) {
+            for (int direction = Board.LEFT; direction <= Board.DOWN; direction++) {
+                int target = Board.target(blank, direction, WIDTH);
+                if (target < 0) continue;
+                tiles[blank] = tiles[target];
+                tiles[target] = 0;
+                if (evaluate(tiles) == remaining - 1) {
+                    path[i] = (byte) direction;
+                    blank = target;
+                    remaining--;
+                    break;
+                }
+                tiles[target] = tiles[blank];
+                tiles[blank] = 0;
+            }
+            if (remaining != path.length - i - 1) {
+                throw new IllegalStateException("corrupt distance table: no move closer from "
+                                                + (path.length - i) + " moves");
+            }
+        }
+        if (index(tiles) != GOAL) {
+            throw new IllegalStateException("corrupt distance table: descent missed the goal");
+        }
+        return path;
+    }
+}
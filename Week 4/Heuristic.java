@@ -0,0 +1,31 @@
+/* *****************************************************************************
+ * Compilation:  javac-algs4 Heuristic.java
+ *
+ * Admissible estimate of the moves left to solve a sliding puzzle, used by
+ * Solver to order its search. Boards are passed as row-major tile arrays
+ * with 0 for the blank, so the same array can be slid in place by the
+ * search and re-evaluated after each move.
+ *
+ **************************************************************************** */
+
+public interface Heuristic {
+
+    // board dimension n this heuristic evaluates
+    int dimension();
+
+    // value of tiles, whose estimate() is a lower bound on the moves from
+    // tiles to the goal
+    int evaluate(int[] tiles);
+
+    // value after tile slid from cell from into the blank at cell to, given
+    // the value before the move; tiles already shows the move
+    int update(int[] tiles, int value, int tile, int from, int to);
+
+    // The lower bound a value stands for. Searches store values and call
+    // this where they need the bound, so that a heuristic whose update needs
+    // more of the board than the bound itself can keep that state in the
+    // value; for most, the value is the bound.
+    default int estimate(int value) {
+        return value;
+    }
+}
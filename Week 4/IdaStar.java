@@ -0,0 +1,122 @@
+/* *****************************************************************************
+ * Compilation:  javac-algs4 IdaStar.java
+ *
+ * Iterative-deepening A* for the sliding puzzle. Searches depth-first from
+ * the initial board with an increasing bound on moves + heuristic, sliding
+ * tiles in place on a single int array and sliding them back on the way
+ * out, so memory is linear in the solution length. Like AStar, it gives up
+ * with a CancellationException when its thread is interrupted.
+ *
+ **************************************************************************** */
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+class IdaStar {
+
+    private static final int FOUND = -1;
+    private static final int INTERRUPT_CHECK_MASK = 0xFFF;
+
+    private final int width;
+    private final int[] tiles;     // row-major, 0 is the blank
+    private int blank;
+    private int manhattan;         // zero exactly at the goal
+    private final Heuristic heuristic;
+    private int estimate;          // heuristic value of tiles
+    private byte[] path;           // blank directions taken so far
+    private int depth;             // solution length once search() succeeds
+    private final SearchMetrics metrics = new SearchMetrics();   // over every iteration
+
+    // prepare a search from initial, which must be solvable
+    IdaStar(Board initial, Heuristic heuristic) {
+        width = initial.dimension();
+        tiles = new int[width * width];
+        initial.copyTo(tiles);
+        blank = initial.blankIndex();
+        manhattan = initial.manhattan();
+        this.heuristic = heuristic;
+        estimate = heuristic.evaluate(tiles);
+    }
+
+    // blank directions of a shortest solution, in order
+    byte[] solve() {
+        int bound = heuristic.estimate(estimate);
+        while (true) {
+            // a node is expanded at any depth up to the bound, so the path
+            // may hold bound + 1 moves before the goal test ends it
+            path = new byte[bound + 1];
+            int next = search(0, bound, -1);
+            if (next >= 0) {
+                bound = next;
+                continue;
+            }
+            return Arrays.copyOf(path, depth);
+        }
+    }
+
+    // Depth-first search below a node reached in moves steps, the last in
+    // direction previous. Returns FOUND, or the smallest f over the bound.
+    private int search(int moves, int bound, int previous) {
+        int f = moves + heuristic.estimate(estimate);
+        if (f > bound) return f;
+        if (manhattan == 0) {
+            depth = moves;
+            return FOUND;
+        }
+
+        if ((++metrics.expanded & INTERRUPT_CHECK_MASK) == 0) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("search interrupted");
+            }
+            metrics.progress(moves);
+        }
+        metrics.frontier(moves);
+
+        int min = Integer.MAX_VALUE;
+        int parentEstimate = estimate;
+        for (int direction = Board.LEFT; direction <= Board.DOWN; direction++) {
+            // never undo the previous move
+            if (direction == (previous ^ 1)) continue;
+            int target = Board.target(blank, direction, width);
+            if (target < 0) continue;
+
+            int from = blank;
+            slide(target);
+            estimate = heuristic.update(tiles, parentEstimate, tiles[from], target, from);
+            path[moves] = (byte) direction;
+            metrics.generated++;
+            int t = search(moves + 1, bound, direction);
+            slide(from);
+            estimate = parentEstimate;
+
+            if (t == FOUND) return FOUND;
+            if (t < min) min = t;
+        }
+        return min;
+    }
+
+    // nodes expanded so far
+    long expanded() {
+        return metrics.expanded;
+    }
+
+    // counts so far; IDA* keeps no frontier, so its peak is the deepest
+    // path searched
+    SearchMetrics metrics() {
+        return metrics;
+    }
+
+    // move the tile at target into the blank, updating manhattan
+    private void slide(int target) {
+        int tile = tiles[target];
+        manhattan += distance(tile, blank) - distance(tile, target);
+        tiles[blank] = tile;
+        tiles[target] = 0;
+        blank = target;
+    }
+
+    private int distance(int tile, int cell) {
+        int goal = tile - 1;
+        return Math.abs(cell / width - goal / width) + Math.abs(cell % width - goal % width);
+    }
+}
@@ -0,0 +1,118 @@
+/* *****************************************************************************
+ * Compilation:  javac-algs4 LinearConflictHeuristic.java
+ *
+ * Manhattan distance plus linear conflicts. When tiles in their goal row
+ * (or column) sit in that line in the wrong order, some of them must leave
+ * the line and come back, which Manhattan distance never counts: two
+ * extra moves for each tile outside a longest correctly ordered subset.
+ *
+ * The extra moves of a line depend only on which goal cells of that line
+ * its cells hold, so they are precomputed for every such arrangement.
+ *
+ **************************************************************************** */
+
+public class LinearConflictHeuristic implements Heuristic {
+
+    private static final int MAX_WIDTH = 7;   // 8^7 table entries
+
+    private final int width;
+    private final ManhattanHeuristic manhattan;
+    private final byte[] removals;   // tiles to take out of each line code
+    private final int[] goalRow;     // goal row of each tile; -1 for the blank
+    private final int[] goalCol;
+
+    // Manhattan distance plus linear conflicts on n-by-n boards, n <= 7
+    public LinearConflictHeuristic(int width) {
+        if (width < 2 || width > MAX_WIDTH) throw new IllegalArgumentException();
+        this.width = width;
+        this.manhattan = new ManhattanHeuristic(width);
+
+        goalRow = new int[width * width];
+        goalCol = new int[width * width];
+        goalRow[0] = -1;
+        goalCol[0] = -1;
+        for (int tile = 1; tile < width * width; tile++) {
+            goalRow[tile] = (tile - 1) / width;
+            goalCol[tile] = (tile - 1) % width;
+        }
+
+        // A line code has one base n + 1 digit per cell: 0 for a blank or
+        // a tile from another line, else 1 + the tile's goal offset in the
+        // line. The tiles that can stay are a longest increasing run.
+        int codes = 1;
+        for (int i = 0; i < width; i++) {
+            codes *= width + 1;
+        }
+        removals = new byte[codes];
+        int[] digits = new int[width];
+        int[] longest = new int[width];
+        for (int code = 0; code < codes; code++) {
+            int present = 0;
+            int best = 0;
+            for (int i = 0, c = code; i < width; i++, c /= width + 1) {
+                digits[i] = c % (width + 1);
+                if (digits[i] == 0) continue;
+                present++;
+                longest[i] = 1;
+                for (int j = 0; j < i; j++) {
+                    if (digits[j] != 0 && digits[j] < digits[i]) {
+                        longest[i] = Math.max(longest[i], longest[j] + 1);
+                    }
+                }
+                best = Math.max(best, longest[i]);
+            }
+            removals[code] = (byte) (present - best);
+        }
+    }
+
+    public int dimension() {
+        return width;
+    }
+
+    public int evaluate(int[] tiles) {
+        int conflicts = 0;
+        for (int line = 0; line < width; line++) {
+            conflicts += rowRemovals(tiles, line) + columnRemovals(tiles, line);
+        }
+        return manhattan.evaluate(tiles) + 2 * conflicts;
+    }
+
+    // Only the lines the tile left and entered can change: its old and new
+    // column for a sideways move, its old and new row otherwise. Their
+    // conflicts before the move are read with the move briefly undone.
+    public int update(int[] tiles, int value, int tile, int from, int to) {
+        boolean sideways = from / width == to / width;
+        int after = lineRemovals(tiles, from, sideways) + lineRemovals(tiles, to, sideways);
+        tiles[from] = tile;
+        tiles[to] = 0;
+        int before = lineRemovals(tiles, from, sideways) + lineRemovals(tiles, to, sideways);
+        tiles[from] = 0;
+        tiles[to] = tile;
+        return manhattan.update(tiles, value, tile, from, to) + 2 * (after - before);
+    }
+
+    // removals in the column (if column is true) or row through cell
+    private int lineRemovals(int[] tiles, int cell, boolean column) {
+        return column ? columnRemovals(tiles, cell % width) : rowRemovals(tiles, cell / width);
+    }
+
+    private int rowRemovals(int[] tiles, int row) {
+        int code = 0;
+        for (int col = width - 1; col >= 0; col--) {
+            int tile = tiles[row * width + col];
+            int digit = goalRow[tile] == row ? goalCol[tile] + 1 : 0;
+            code = code * (width + 1) + digit;
+        }
+        return removals[code];
+    }
+
+    private int columnRemovals(int[] tiles, int col) {
+        int code = 0;
+        for (int row = width - 1; row >= 0; row--) {
+            int tile = tiles[row * width + col];
+            int digit = goalCol[tile] == col ? goalRow[tile] + 1 : 0;
+            code = code * (width + 1) + digit;
+        }
+        return removals[code];
+    }
+}
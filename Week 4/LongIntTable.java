@@ -0,0 +1,124 @@
+/* *****************************************************************************
+ * Compilation:  javac-algs4 LongIntTable.java
+ *
+ * Open-addressing symbol table from long keys to non-negative int values,
+ * stored in two parallel primitive arrays with linear probing. Used by the
+ * solvers to remember the cheapest cost at which a board key was reached
+ * without boxing a Long and an Integer per entry.
+ *
+ **************************************************************************** */
+
+import java.util.Arrays;
+
+class LongIntTable {
+
+    private static final int INITIAL_BITS = 10;
+
+    private long[] keys;
+    private int[] values;   // stored value + 1, so 0 marks an empty slot
+    private int bits;       // log2 of the capacity
+    private int n;          // number of keys in the table
+
+    // create an empty table
+    public LongIntTable() {
+        allocate(INITIAL_BITS);
+    }
+
+    private void allocate(int capacityBits) {
+        bits = capacityBits;
+        keys = new long[1 << bits];
+        values = new int[1 << bits];
+        n = 0;
+    }
+
+    // number of keys in the table
+    public int size() {
+        return n;
+    }
+
+    // approximate bytes of the table's arrays
+    public long footprint() {
+        return (long) keys.length * (Long.BYTES + Integer.BYTES);
+    }
+
+    // remove every key, keeping the allocated capacity
+    public void clear() {
+        Arrays.fill(values, 0);
+        n = 0;
+    }
+
+    // Fibonacci hashing: the top bits of key times the golden ratio
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - bits));
+    }
+
+    // value associated with key; -1 if key is not in the table
+    public int get(long key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key); values[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) return values[i] - 1;
+        }
+        return -1;
+    }
+
+    // associate value with key, replacing any previous value
+    public void put(long key, int value) {
+        if (value < 0) throw new IllegalArgumentException();
+        int i = find(key);
+        if (values[i] == 0) {
+            insertAt(i, key, value);
+        }
+        else {
+            values[i] = value + 1;
+        }
+    }
+
+    // store value for key unless the key already holds a value at most as
+    // large; returns whether the table changed
+    public boolean offer(long key, int value) {
+        if (value < 0) throw new IllegalArgumentException();
+        int i = find(key);
+        if (values[i] == 0) {
+            insertAt(i, key, value);
+            return true;
+        }
+        if (values[i] - 1 <= value) return false;
+        values[i] = value + 1;
+        return true;
+    }
+
+    // slot holding key, or the empty slot where it belongs
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int i = slot(key);
+        while (values[i] != 0 && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void insertAt(int i, long key, int value) {
+        keys[i] = key;
+        values[i] = value + 1;
+        n++;
+        // keep the load factor at most 1/2
+        if (2 * n > keys.length) resize(bits + 1);
+    }
+
+    private void resize(int capacityBits) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacityBits);
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] == 0) continue;
+            int i = slot(oldKeys[j]);
+            while (values[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+            n++;
+        }
+    }
+}
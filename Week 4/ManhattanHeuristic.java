@@ -0,0 +1,56 @@
+/* *****************************************************************************
+ * Compilation:  javac-algs4 ManhattanHeuristic.java
+ *
+ * Sum of the Manhattan distances of the tiles from their goal cells; each
+ * move changes only the moved tile's term. The goal cells are normally
+ * those of the puzzle's goal, but may be taken from any other board, to
+ * estimate distances to that board instead.
+ *
+ **************************************************************************** */
+
+public class ManhattanHeuristic implements Heuristic {
+
+    private final int width;
+    private final int[] goalCells;   // goalCells[tile] = cell of tile in the target
+
+    // Manhattan distance on n-by-n boards
+    public ManhattanHeuristic(int width) {
+        if (width < 2) throw new IllegalArgumentException();
+        this.width = width;
+        goalCells = new int[width * width];
+        for (int tile = 1; tile < goalCells.length; tile++) {
+            goalCells[tile] = tile - 1;
+        }
+    }
+
+    // Manhattan distance to the given board rather than to the goal
+    public ManhattanHeuristic(Board target) {
+        if (target == null) throw new IllegalArgumentException();
+        width = target.dimension();
+        goalCells = new int[width * width];
+        for (int cell = 0; cell < goalCells.length; cell++) {
+            goalCells[target.tileAt(cell)] = cell;
+        }
+    }
+
+    public int dimension() {
+        return width;
+    }
+
+    public int evaluate(int[] tiles) {
+        int sum = 0;
+        for (int cell = 0; cell < tiles.length; cell++) {
+            if (tiles[cell] != 0) sum += distance(tiles[cell], cell);
+        }
+        return sum;
+    }
+
+    public int update(int[] tiles, int value, int tile, int from, int to) {
+        return value - distance(tile, from) + distance(tile, to);
+    }
+
+    private int distance(int tile, int cell) {
+        int goal = goalCells[tile];
+        return Math.abs(cell / width - goal / width) + Math.abs(cell % width - goal % width);
+    }
+}
@@ -0,0 +1,18 @@
+/* *****************************************************************************
+ * Compilation:  javac-algs4 NeighborVisitor.java
+ *
+ * Callback for Board.forEachNeighbor(), which reports each legal blank
+ * move of a board without building the neighboring board: the neighbor's
+ * key and its heuristics are derived from the one tile that moves.
+ *
+ **************************************************************************** */
+
+public interface NeighborVisitor {
+
+    // the blank moved in direction (Board.LEFT, RIGHT, UP or DOWN), sliding
+    // tile from cell from into the blank at cell to; key is the neighbor's
+    // key(), and the deltas are its Hamming and Manhattan distances minus
+    // those of the board
+    void visit(int direction, long key, int tile, int from, int to,
+               int hammingDelta, int manhattanDelta);
+}
@@ -0,0 +1,204 @@
+/* *****************************************************************************
+ * Compilation:  javac-algs4 NodeArena.java
+ *
+ * Search nodes stored as a struct of arrays: each node is an int index
+ * into parallel primitive arrays holding its board, moves made (g),
+ * heuristic estimate (h), parent index and the blank move that produced
+ * it. Boards up to 4x4 are kept as their packed key; wider boards also
+ * keep their tiles, n^2 bytes per node. The arrays grow in fixed-size
+ * chunks, so growing never copies nodes, and clear() keeps the chunks
+ * for the next search.
+ *
+ **************************************************************************** */
+
+import java.util.Arrays;
+
+class NodeArena {
+
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int RETAINED_CHUNKS = 64;   // about 1M nodes
+
+    private int width;
+    private int cellBytes;          // tile bytes per node; 0 if keys hold the tiles
+
+    private long[][] keys = new long[0][];
+    private int[][] moves = new int[0][];
+    private int[][] estimates = new int[0][];
+    private int[][] parents = new int[0][];
+    private byte[][] lastMoves = new byte[0][];
+    private byte[][] cells = new byte[0][];
+    private int chunks;             // chunks checked ready for this search
+    private int n;                  // nodes in use
+
+    // forget every node and prepare to store boards of the given width
+    void reset(int boardWidth) {
+        int bytes = boardWidth > Board.MAX_PACKED_WIDTH
+                    ? boardWidth * boardWidth * Board.bytesPerTile(boardWidth) : 0;
+        if (bytes != cellBytes) {
+            Arrays.fill(cells, null);
+        }
+        width = boardWidth;
+        cellBytes = bytes;
+
+        // keep the chunks of a typical search, release those of a huge one
+        for (int c = RETAINED_CHUNKS; c < keys.length; c++) {
+            keys[c] = null;
+            moves[c] = null;
+            estimates[c] = null;
+            parents[c] = null;
+            lastMoves[c] = null;
+            cells[c] = null;
+        }
+        chunks = 0;
+        n = 0;
+    }
+
+    // number of nodes stored
+    int size() {
+        return n;
+    }
+
+    // approximate bytes of the chunks this search has used
+    long footprint() {
+        return (long) chunks * CHUNK_SIZE * (Long.BYTES + 3 * Integer.BYTES + 1 + cellBytes);
+    }
+
+    // store the root board of a search, with heuristic estimate h
+    int addRoot(Board board, int h) {
+        int node = append(board.key(), 0, h, -1, -1);
+        if (cellBytes > 0) {
+            for (int cell = 0; cell < width * width; cell++) {
+                writeTile(node, cell, board.tileAt(cell));
+            }
+        }
+        return node;
+    }
+
+    // store a node whose row-major tiles are given, for a parent that may
+    // live in another arena; tiles is read only for boards wider than 4x4
+    int addNode(long key, int[] tiles, int g, int h, int parent, int direction) {
+        int node = append(key, g, h, parent, direction);
+        if (cellBytes > 0) {
+            for (int cell = 0; cell < width * width; cell++) {
+                writeTile(node, cell, tiles[cell]);
+            }
+        }
+        return node;
+    }
+
+    // Store the child of parent reached by moving the blank in direction,
+    // which slides tile from cell from into the blank at cell to; key is
+    // the child's key, g and h its moves and estimate.
+    int addChild(int parent, long key, int tile, int from, int to, int g, int h, int direction) {
+        int node = append(key, g, h, parent, direction);
+        if (cellBytes > 0) {
+            System.arraycopy(cells[parent >>> CHUNK_BITS], (parent & CHUNK_MASK) * cellBytes,
+                             cells[node >>> CHUNK_BITS], (node & CHUNK_MASK) * cellBytes,
+                             cellBytes);
+            writeTile(node, from, 0);
+            writeTile(node, to, tile);
+        }
+        return node;
+    }
+
+    private int append(long key, int g, int h, int parent, int direction) {
+        int c = n >>> CHUNK_BITS;
+        if (c == chunks) allocate(c);
+        int i = n & CHUNK_MASK;
+        keys[c][i] = key;
+        moves[c][i] = g;
+        estimates[c][i] = h;
+        parents[c][i] = parent;
+        lastMoves[c][i] = (byte) direction;
+        return n++;
+    }
+
+    private void allocate(int c) {
+        if (c == keys.length) {
+            int capacity = Math.max(16, 2 * c);
+            keys = Arrays.copyOf(keys, capacity);
+            moves = Arrays.copyOf(moves, capacity);
+            estimates = Arrays.copyOf(estimates, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            lastMoves = Arrays.copyOf(lastMoves, capacity);
+            cells = Arrays.copyOf(cells, capacity);
+        }
+        if (keys[c] == null) {
+            keys[c] = new long[CHUNK_SIZE];
+            moves[c] = new int[CHUNK_SIZE];
+            estimates[c] = new int[CHUNK_SIZE];
+            parents[c] = new int[CHUNK_SIZE];
+            lastMoves[c] = new byte[CHUNK_SIZE];
+        }
+        if (cellBytes > 0 && cells[c] == null) {
+            cells[c] = new byte[CHUNK_SIZE * cellBytes];
+        }
+        chunks++;
+    }
+
+    long key(int node) {
+        return keys[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    int moves(int node) {
+        return moves[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    int estimate(int node) {
+        return estimates[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    // parent index; -1 for the root
+    int parent(int node) {
+        return parents[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    // direction the blank moved to reach node; -1 for the root
+    int lastMove(int node) {
+        return lastMoves[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    // copy node's board, row-major, into tiles and return the blank's cell
+    int load(int node, int[] tiles) {
+        int blank = -1;
+        for (int cell = 0; cell < width * width; cell++) {
+            tiles[cell] = cellBytes == 0 ? Board.tile(key(node), cell) : readTile(node, cell);
+            if (tiles[cell] == 0) blank = cell;
+        }
+        return blank;
+    }
+
+    // blank directions from the root to node
+    byte[] path(int node) {
+        int length = moves(node);
+        byte[] path = new byte[length];
+        for (int i = length - 1; i >= 0; i--) {
+            path[i] = (byte) lastMove(node);
+            node = parent(node);
+        }
+        return path;
+    }
+
+    private int readTile(int node, int cell) {
+        byte[] chunk = cells[node >>> CHUNK_BITS];
+        int offset = (node & CHUNK_MASK) * cellBytes;
+        if (cellBytes == width * width) {
+            return chunk[offset + cell] & 0xFF;
+        }
+        return (chunk[offset + 2 * cell] & 0xFF) << 8 | (chunk[offset + 2 * cell + 1] & 0xFF);
+    }
+
+    private void writeTile(int node, int cell, int tile) {
+        byte[] chunk = cells[node >>> CHUNK_BITS];
+        int offset = (node & CHUNK_MASK) * cellBytes;
+        if (cellBytes == width * width) {
+            chunk[offset + cell] = (byte) tile;
+        }
+        else {
+            chunk[offset + 2 * cell] = (byte) (tile >>> 8);
+            chunk[offset + 2 * cell + 1] = (byte) tile;
+        }
+    }
+}
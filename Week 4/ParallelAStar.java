@@ -0,0 +1,371 @@
+/* *****************************************************************************
+ * Compilation:  javac-algs4 ParallelAStar.java
+ *
+ * Hash-distributed A* (HDA*) for the sliding puzzle. Every board key is
+ * owned by one worker thread, chosen by hashing the key; each worker has
+ * its own NodeArena, BucketQueue frontier and LongIntTable closed set, so
+ * the search itself takes no locks. A worker expands its own boards and
+ * sends each child it does not own, in batches, to the owner's lock-free
+ * mailbox (a ConcurrentLinkedQueue).
+ *
+ * The first goal found need not be optimal, since the workers' frontiers
+ * drift apart. Its cost becomes the bound: boards whose f = g + h reaches
+ * it are dropped, and cheaper goals lower it. The search ends when every
+ * worker is idle and no batch is in a mailbox, which one counter of
+ * active workers plus unread batches tracks; with an admissible heuristic
+ * every board cheaper than the bound was then expanded, so the bound is
+ * the optimal number of moves.
+ *
+ * Node ids are global, node * workers + worker, so parent links may cross
+ * workers; the path is rebuilt once all workers have stopped.
+ *
+ **************************************************************************** */
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+class ParallelAStar {
+
+    private static final int BATCH_SIZE = 64;
+    private static final int EXPANSIONS_PER_ROUND = 256;   // between mailbox reads
+    private static final long IDLE_PARK_NANOS = 20_000;
+
+    private final Worker[] workers;
+    private Heuristic heuristic;
+    private int width;
+    private long goalKey;
+    private int maxNodes;   // per worker, so that global ids fit an int
+
+    // active workers plus batches sent but not yet read; 0 ends the search
+    private final AtomicLong work = new AtomicLong();
+    // moves of the best solution found so far
+    private final AtomicInteger bound = new AtomicInteger();
+    private int solution;   // global id of that solution's goal node
+    private volatile boolean done;
+    private volatile Throwable failure;
+
+    // a search split across the given number of worker threads
+    ParallelAStar(int threads) {
+        if (threads < 1) throw new IllegalArgumentException();
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(i);
+        }
+    }
+
+    // blank directions of a shortest solution from initial, which must be
+    // solvable, guided by the admissible heuristic, which must be safe to
+    // call from several threads; throws CancellationException if the
+    // calling thread is interrupted while waiting for the workers
+    byte[] solve(Board initial, Heuristic heuristic) {
+        this.heuristic = heuristic;
+        width = initial.dimension();
+        goalKey = Board.goal(width).key();
+        maxNodes = Integer.MAX_VALUE / workers.length;
+        work.set(workers.length);
+        bound.set(Integer.MAX_VALUE);
+        solution = -1;
+        done = false;
+        failure = null;
+
+        for (Worker worker : workers) {
+            worker.reset();
+        }
+        int[] tiles = new int[width * width];
+        initial.copyTo(tiles);
+        workers[owner(initial.key())].addRoot(initial, heuristic.evaluate(tiles));
+
+        Thread[] threads = new Thread[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            threads[i] = new Thread(workers[i], "hda-worker-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            while (true) {
+                try {
+                    thread.join();
+                    break;
+                }
+                catch (InterruptedException e) {
+                    // stop the workers, but still wait for them to finish
+                    interrupted = true;
+                    done = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("search interrupted");
+        }
+        if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+        if (failure instanceof Error) throw (Error) failure;
+        if (failure != null) throw new IllegalStateException(failure);
+        return path(solution, bound.get());
+    }
+
+    // nodes expanded by the last solve, over all workers
+    long expanded() {
+        return metrics().expanded;
+    }
+
+    // counts of the last solve, summed over all workers
+    SearchMetrics metrics() {
+        SearchMetrics sum = new SearchMetrics();
+        for (Worker worker : workers) {
+            sum.add(worker.metrics);
+        }
+        return sum;
+    }
+
+    // worker owning key: splitmix64's finalizer, so that ownership does not
+    // correlate with the slots of the workers' LongIntTables
+    private int owner(long key) {
+        key = (key ^ (key >>> 30)) * 0xBF58476D1CE4E5B9L;
+        key = (key ^ (key >>> 27)) * 0x94D049BB133111EBL;
+        key ^= key >>> 31;
+        return (int) (((key >>> 32) * workers.length) >>> 32);
+    }
+
+    private synchronized void offerSolution(int moves, int id) {
+        if (moves < bound.get()) {
+            solution = id;
+            bound.set(moves);
+        }
+    }
+
+    // follow parent links, across workers, from the goal back to the root
+    private byte[] path(int id, int moves) {
+        byte[] path = new byte[moves];
+        for (int i = moves - 1; i >= 0; i--) {
+            NodeArena arena = workers[id % workers.length].arena;
+            int node = id / workers.length;
+            path[i] = (byte) arena.lastMove(node);
+            id = arena.parent(node);
+        }
+        return path;
+    }
+
+    // children bound for one worker; the tiles are kept only for boards
+    // wider than 4x4, whose keys do not determine them
+    private static final class Batch {
+        final long[] keys = new long[BATCH_SIZE];
+        final int[] moves = new int[BATCH_SIZE];
+        final int[] estimates = new int[BATCH_SIZE];
+        final int[] parents = new int[BATCH_SIZE];
+        final byte[] lastMoves = new byte[BATCH_SIZE];
+        final int[] tiles;
+        int size;
+
+        Batch(int cellsPerBoard) {
+            tiles = new int[BATCH_SIZE * cellsPerBoard];
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final int index;
+        private final NodeArena arena = new NodeArena();
+        private final BucketQueue frontier = new BucketQueue();
+        private final LongIntTable closed = new LongIntTable();
+        private final ConcurrentLinkedQueue<Batch> mailbox = new ConcurrentLinkedQueue<>();
+        private Batch[] outbox;     // one batch being filled per other worker
+        private int[] tiles;
+        private int[] received;     // tiles of one received wide board
+        private int cellsPerBoard;  // tiles a batch keeps per board
+        private boolean active;
+        private final SearchMetrics metrics = new SearchMetrics();
+
+        Worker(int index) {
+            this.index = index;
+        }
+
+        void reset() {
+            arena.reset(width);
+            frontier.clear();
+            closed.clear();
+            mailbox.clear();
+            tiles = new int[width * width];
+            received = new int[width * width];
+            cellsPerBoard = width > Board.MAX_PACKED_WIDTH ? width * width : 0;
+            outbox = new Batch[workers.length];
+            active = true;
+            metrics.reset();
+        }
+
+        void addRoot(Board initial, int h) {
+            int root = arena.addRoot(initial, h);
+            frontier.insert(root, heuristic.estimate(h), 0);
+        }
+
+        public void run() {
+            try {
+                while (!done) {
+                    boolean read = readMailbox();
+                    if (!frontier.isEmpty()) {
+                        expand();
+                        sendAll();
+                        continue;
+                    }
+                    if (active) {
+                        active = false;
+                        if (work.decrementAndGet() == 0) done = true;
+                    }
+                    else if (work.get() == 0) {
+                        done = true;
+                    }
+                    if (!read && !done) LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                metrics.footprint = arena.footprint() + frontier.footprint() + closed.footprint();
+            }
+            catch (Throwable e) {
+                failure = e;
+                done = true;
+            }
+        }
+
+        // move every batch in the mailbox onto the frontier
+        private boolean readMailbox() {
+            boolean any = false;
+            Batch batch;
+            while ((batch = mailbox.poll()) != null) {
+                // become active before the batch stops counting as work
+                if (!active) {
+                    active = true;
+                    work.incrementAndGet();
+                }
+                for (int i = 0; i < batch.size; i++) {
+                    int moves = batch.moves[i];
+                    int closedMoves = closed.get(batch.keys[i]);
+                    if (closedMoves >= 0 && closedMoves <= moves) {
+                        metrics.duplicates++;
+                        continue;
+                    }
+                    if (cellsPerBoard > 0) {
+                        System.arraycopy(batch.tiles, i * cellsPerBoard, received, 0, cellsPerBoard);
+                    }
+                    int node = arena.addNode(batch.keys[i], received, moves, batch.estimates[i],
+                                             batch.parents[i], batch.lastMoves[i]);
+                    checkCapacity(node);
+                    frontier.insert(node, moves + heuristic.estimate(batch.estimates[i]), moves);
+                }
+                metrics.frontier(frontier.size());
+                work.decrementAndGet();
+                any = true;
+            }
+            return any;
+        }
+
+        // expand a round of boards from the frontier
+        private void expand() {
+            for (int round = 0; round < EXPANSIONS_PER_ROUND && !frontier.isEmpty(); round++) {
+                int node = frontier.delMin();
+                int moves = arena.moves(node);
+                long key = arena.key(node);
+                int estimate = arena.estimate(node);
+
+                // skip boards that cannot beat the best solution, or that
+                // were already expanded at equal or lower cost
+                if (moves + heuristic.estimate(estimate) >= bound.get()) continue;
+                if (!closed.offer(key, moves)) {
+                    metrics.duplicates++;
+                    continue;
+                }
+
+                int blank = arena.load(node, tiles);
+                if (key == goalKey && AStar.isGoal(tiles)) {
+                    offerSolution(moves, id(node));
+                    continue;
+                }
+                metrics.expanded++;
+                metrics.progress(frontier.size());
+
+                int previous = arena.lastMove(node);
+                for (int direction = Board.LEFT; direction <= Board.DOWN; direction++) {
+                    if (direction == (previous ^ 1)) continue;
+                    int target = Board.target(blank, direction, width);
+                    if (target < 0) continue;
+
+                    int tile = tiles[target];
+                    long childKey = Board.moveKey(key, width, tile, target, blank);
+                    int owner = owner(childKey);
+                    if (owner == index) {
+                        int closedMoves = closed.get(childKey);
+                        if (closedMoves >= 0 && closedMoves <= moves + 1) {
+                            metrics.duplicates++;
+                            continue;
+                        }
+                    }
+
+                    // slide the scratch copy to the child and back
+                    tiles[blank] = tile;
+                    tiles[target] = 0;
+                    int childEstimate = heuristic.update(tiles, estimate, tile, target, blank);
+                    int f = moves + 1 + heuristic.estimate(childEstimate);
+                    if (f < bound.get()) {
+                        metrics.generated++;
+                        if (owner == index) {
+                            // parents are stored as global ids, even local ones
+                            int child = arena.addNode(childKey, tiles, moves + 1, childEstimate,
+                                                      id(node), direction);
+                            checkCapacity(child);
+                            frontier.insert(child, f, moves + 1);
+                        }
+                        else {
+                            post(owner, childKey, moves + 1, childEstimate, id(node), direction);
+                        }
+                    }
+                    tiles[target] = tile;
+                    tiles[blank] = 0;
+                }
+                metrics.frontier(frontier.size());
+            }
+        }
+
+        // add a child to the batch for owner, whose tiles are in tiles
+        private void post(int owner, long key, int moves, int estimate, int parent, int direction) {
+            Batch batch = outbox[owner];
+            if (batch == null) {
+                batch = new Batch(cellsPerBoard);
+                outbox[owner] = batch;
+            }
+            int i = batch.size++;
+            batch.keys[i] = key;
+            batch.moves[i] = moves;
+            batch.estimates[i] = estimate;
+            batch.parents[i] = parent;
+            batch.lastMoves[i] = (byte) direction;
+            if (cellsPerBoard > 0) {
+                System.arraycopy(tiles, 0, batch.tiles, i * cellsPerBoard, cellsPerBoard);
+            }
+            if (batch.size == BATCH_SIZE) send(owner);
+        }
+
+        // hand every partly filled batch to its owner
+        private void sendAll() {
+            for (int owner = 0; owner < outbox.length; owner++) {
+                if (outbox[owner] != null) send(owner);
+            }
+        }
+
+        private void send(int owner) {
+            // count the batch as work before its owner can read it
+            work.incrementAndGet();
+            workers[owner].mailbox.add(outbox[owner]);
+            outbox[owner] = null;
+        }
+
+        private int id(int node) {
+            return node * workers.length + index;
+        }
+
+        private void checkCapacity(int node) {
+            if (node >= maxNodes) {
+                throw new IllegalStateException("search exceeds " + maxNodes + " nodes per worker");
+            }
+        }
+    }
+}
@@ -0,0 +1,403 @@
+/* *****************************************************************************
+ * Compilation:  javac-algs4 PatternDatabase.java
+ *
+ * Additive disjoint pattern database heuristic for the sliding puzzle.
+ * The tiles are split into disjoint patterns; for each pattern a table
+ * holds the exact number of moves of that pattern's tiles needed to bring
+ * them home, found by a breadth-first search backwards from the goal in
+ * which moving any other tile is free. Because no move is counted by two
+ * tables, their sum is an admissible heuristic that dominates Manhattan
+ * distance.
+ *
+ * The tables are written once to a byte file and memory-mapped on every
+ * later load, so only the first JVM pays for the searches.
+ *
+ * When every pattern's table index fits in the 32 bits of a heuristic
+ * value together, as for the default 2x2 and 3x3 partitions, the value
+ * is those indices rather than their sum, and estimate() looks them up.
+ * update() then just rewrites the moved tile's cell in its pattern's
+ * index, without reading the board. Wider boards' values are the sum,
+ * and update() recomputes the moved tile's pattern index from the board.
+ *
+ **************************************************************************** */
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class PatternDatabase implements Heuristic {
+
+    private static final int MAGIC = 0x50444231;   // "PDB1"
+    private static final int UNREACHED = 0xFF;
+    private static final int MAX_INDEX_BITS = 26;  // 64 MB per table
+
+    private final int width;
+    private final int bits;              // bits per cell in a table index
+    private final int[][] patterns;      // disjoint groups of tiles
+    private final int[] patternOf;       // pattern holding each tile; -1 if none
+    private final int[] shiftOf;         // offset of each tile's cell in its index
+    private final MappedByteBuffer tables;
+    private final int[] offsets;         // start of each pattern's table
+    private final boolean packed;        // is a value every pattern's index?
+    private final int[] valueShiftOf;    // offset of each pattern's index in a packed value
+
+    private PatternDatabase(int width, int[][] patterns, MappedByteBuffer tables, int[] offsets) {
+        this.width = width;
+        this.bits = cellBits(width);
+        this.patterns = patterns;
+        this.tables = tables;
+        this.offsets = offsets;
+
+        patternOf = new int[width * width];
+        shiftOf = new int[width * width];
+        valueShiftOf = new int[patterns.length];
+        Arrays.fill(patternOf, -1);
+        int valueBits = 0;
+        for (int p = 0; p < patterns.length; p++) {
+            valueShiftOf[p] = valueBits;
+            valueBits += bits * patterns[p].length;
+            for (int j = 0; j < patterns[p].length; j++) {
+                patternOf[patterns[p][j]] = p;
+                shiftOf[patterns[p][j]] = bits * j;
+            }
+        }
+        packed = valueBits <= Integer.SIZE;
+    }
+
+    // the default partition for boards of the given width, cached under
+    // the directory named by the puzzle.cache.dir system property
+    // (the temporary directory if unset)
+    public static PatternDatabase forWidth(int width) {
+        int[][] patterns = defaultPatterns(width);
+        StringBuilder name = new StringBuilder("pdb-" + width + "x" + width);
+        for (int[] pattern : patterns) {
+            name.append('-').append(pattern.length);
+        }
+        name.append(".bin");
+        return open(width, patterns, cacheDirectory().resolve(name.toString()));
+    }
+
+    // directory where precomputed tables are kept
+    static Path cacheDirectory() {
+        return Paths.get(System.getProperty("puzzle.cache.dir",
+                                            System.getProperty("java.io.tmpdir")));
+    }
+
+    private static int[][] defaultPatterns(int width) {
+        switch (width) {
+            case 2:
+                return new int[][] { { 1, 2, 3 } };
+            case 3:
+                return new int[][] { { 1, 2, 3, 4 }, { 5, 6, 7, 8 } };
+            case 4:
+                // 5-5-5: the 6-6-3 split is stronger but needs 32 MB of
+                // tables and a far larger search to build them
+                return new int[][] {
+                        { 1, 2, 3, 4, 7 }, { 5, 6, 9, 10, 13 }, { 8, 11, 12, 14, 15 }
+                };
+            default:
+                throw new IllegalArgumentException("no default patterns for width " + width);
+        }
+    }
+
+    // tables for the given disjoint patterns, mapped from file; the file is
+    // built first if it is missing or was built for different patterns
+    public static PatternDatabase open(int width, int[][] patterns, Path file) {
+        if (file == null) throw new IllegalArgumentException();
+        int[][] copy = validate(width, patterns);
+        try {
+            if (!Files.exists(file) || !matches(file, width, copy)) {
+                write(file, width, copy);
+            }
+            return map(file, width, copy);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int[][] validate(int width, int[][] patterns) {
+        if (width < 2 || patterns == null) throw new IllegalArgumentException();
+        int[][] copy = new int[patterns.length][];
+        boolean[] used = new boolean[width * width];
+        for (int p = 0; p < patterns.length; p++) {
+            copy[p] = patterns[p].clone();
+            if (copy[p].length == 0 || cellBits(width) * copy[p].length > MAX_INDEX_BITS) {
+                throw new IllegalArgumentException("pattern " + p + " has a bad size");
+            }
+            for (int tile : copy[p]) {
+                if (tile <= 0 || tile >= width * width || used[tile]) {
+                    throw new IllegalArgumentException("tile " + tile + " is invalid or repeated");
+                }
+                used[tile] = true;
+            }
+        }
+        return copy;
+    }
+
+    private static int cellBits(int width) {
+        return 32 - Integer.numberOfLeadingZeros(width * width - 1);
+    }
+
+    private static int headerSize(int[][] patterns) {
+        int size = 3 * Integer.BYTES;
+        for (int[] pattern : patterns) {
+            size += (pattern.length + 1) * Integer.BYTES;
+        }
+        return size;
+    }
+
+    // does the header of file describe exactly these patterns?
+    private static boolean matches(Path file, int width, int[][] patterns) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int header = headerSize(patterns);
+            if (channel.size() < header) return false;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, header);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != width
+                    || buffer.getInt() != patterns.length) return false;
+            for (int[] pattern : patterns) {
+                if (buffer.getInt() != pattern.length) return false;
+                for (int tile : pattern) {
+                    if (buffer.getInt() != tile) return false;
+                }
+            }
+            long size = header;
+            for (int[] pattern : patterns) {
+                size += 1L << (cellBits(width) * pattern.length);
+            }
+            return channel.size() == size;
+        }
+    }
+
+    // build every table and write the file through a temporary sibling,
+    // so a concurrent or interrupted build never leaves a partial file
+    private static void write(Path file, int width, int[][] patterns) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream stream = Files.newOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+                out.writeInt(MAGIC);
+                out.writeInt(width);
+                out.writeInt(patterns.length);
+                for (int[] pattern : patterns) {
+                    out.writeInt(pattern.length);
+                    for (int tile : pattern) {
+                        out.writeInt(tile);
+                    }
+                }
+                for (int[] pattern : patterns) {
+                    out.write(build(width, pattern));
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static PatternDatabase map(Path file, int width, int[][] patterns) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                                  channel.size());
+            int[] offsets = new int[patterns.length];
+            int offset = headerSize(patterns);
+            for (int p = 0; p < patterns.length; p++) {
+                offsets[p] = offset;
+                offset += 1 << (cellBits(width) * patterns[p].length);
+            }
+            return new PatternDatabase(width, patterns, buffer, offsets);
+        }
+    }
+
+    // Table for one pattern: entry i holds the fewest pattern-tile moves
+    // from the placement whose cells are packed in i back to the goal.
+    // Breadth-first search from the goal over (placement, blank) states,
+    // where moving a tile outside the pattern costs nothing, so states
+    // reached that way join the level being expanded.
+    private static byte[] build(int width, int[] pattern) {
+        int size = width * width;
+        int bits = cellBits(width);
+        int cellMask = (1 << bits) - 1;
+        int k = pattern.length;
+
+        byte[] table = new byte[1 << (bits * k)];
+        Arrays.fill(table, (byte) UNREACHED);
+        long states = (long) table.length * size;
+        if (states > Integer.MAX_VALUE) throw new IllegalArgumentException("pattern too large");
+        long[] visited = new long[(int) ((states + 63) >>> 6)];
+        long[] queued = new long[visited.length];
+
+        int goal = 0;
+        for (int j = 0; j < k; j++) {
+            goal |= (pattern[j] - 1) << (bits * j);
+        }
+
+        IntList level = new IntList();
+        IntList next = new IntList();
+        next.add(goal * size + size - 1);
+        int[] slotAt = new int[size];
+        Arrays.fill(slotAt, -1);
+
+        for (int distance = 0; next.size() > 0; distance++) {
+            // states first reached at this distance
+            level.clear();
+            for (int i = 0; i < next.size(); i++) {
+                int state = next.get(i);
+                if (!test(visited, state)) {
+                    set(visited, state);
+                    level.add(state);
+                }
+            }
+            next.clear();
+
+            for (int i = 0; i < level.size(); i++) {
+                int state = level.get(i);
+                int index = state / size;
+                int blank = state % size;
+                if ((table[index] & 0xFF) == UNREACHED) table[index] = (byte) distance;
+
+                for (int j = 0; j < k; j++) {
+                    slotAt[(index >>> (bits * j)) & cellMask] = j;
+                }
+                for (int direction = Board.LEFT; direction <= Board.DOWN; direction++) {
+                    int target = Board.target(blank, direction, width);
+                    if (target < 0) continue;
+                    int slot = slotAt[target];
+                    if (slot < 0) {
+                        // free move: same placement, same distance
+                        int successor = index * size + target;
+                        if (!test(visited, successor)) {
+                            set(visited, successor);
+                            level.add(successor);
+                        }
+                    }
+                    else {
+                        int shift = bits * slot;
+                        int moved = index & ~(cellMask << shift) | blank << shift;
+                        int successor = moved * size + target;
+                        if (!test(visited, successor) && !test(queued, successor)) {
+                            set(queued, successor);
+                            next.add(successor);
+                        }
+                    }
+                }
+                for (int j = 0; j < k; j++) {
+                    slotAt[(index >>> (bits * j)) & cellMask] = -1;
+                }
+            }
+        }
+        return table;
+    }
+
+    private static boolean test(long[] bitset, int i) {
+        return (bitset[i >>> 6] & 1L << i) != 0;
+    }
+
+    private static void set(long[] bitset, int i) {
+        bitset[i >>> 6] |= 1L << i;
+    }
+
+    // growable array of ints
+    private static class IntList {
+        private int[] a = new int[1024];
+        private int n;
+
+        void add(int x) {
+            if (n == a.length) a = Arrays.copyOf(a, 2 * n);
+            a[n++] = x;
+        }
+
+        int get(int i) {
+            return a[i];
+        }
+
+        int size() {
+            return n;
+        }
+
+        void clear() {
+            n = 0;
+        }
+    }
+
+    // board width the tables were built for
+    public int dimension() {
+        return width;
+    }
+
+    // table index of pattern p on a row-major board
+    private int index(int[] tiles, int p) {
+        int index = 0;
+        int left = patterns[p].length;   // pattern tiles not yet found
+        for (int cell = 0; left > 0; cell++) {
+            if (patternOf[tiles[cell]] == p) {
+                index |= cell << shiftOf[tiles[cell]];
+                left--;
+            }
+        }
+        return index;
+    }
+
+    private int lookup(int p, int index) {
+        return tables.get(offsets[p] + index) & 0xFF;
+    }
+
+    // every pattern's index if packed, else the sum of their distances
+    public int evaluate(int[] tiles) {
+        int value = 0;
+        for (int p = 0; p < patterns.length; p++) {
+            int index = index(tiles, p);
+            value += packed ? index << valueShiftOf[p] : lookup(p, index);
+        }
+        return value;
+    }
+
+    // only the index of the moved tile's pattern changes, and in a packed
+    // value only the moved tile's cell in it
+    public int update(int[] tiles, int value, int tile, int from, int to) {
+        int p = patternOf[tile];
+        if (p < 0) return value;
+        int mask = (1 << bits) - 1;
+        if (packed) {
+            int shift = valueShiftOf[p] + shiftOf[tile];
+            return value & ~(mask << shift) | to << shift;
+        }
+        int shift = shiftOf[tile];
+        int after = index(tiles, p);
+        int before = after & ~(mask << shift) | from << shift;
+        return value - lookup(p, before) + lookup(p, after);
+    }
+
+    public int estimate(int value) {
+        if (!packed) return value;
+        int sum = 0;
+        for (int p = 0; p < patterns.length; p++) {
+            // no index is wider than MAX_INDEX_BITS
+            int index = value >>> valueShiftOf[p] & (1 << bits * patterns[p].length) - 1;
+            sum += lookup(p, index);
+        }
+        return sum;
+    }
+
+    // heuristic value of board
+    public int distance(Board board) {
+        if (board == null || board.dimension() != width) throw new IllegalArgumentException();
+        int[] tiles = new int[width * width];
+        board.copyTo(tiles);
+        return estimate(evaluate(tiles));
+    }
+}
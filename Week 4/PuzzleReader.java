@@ -0,0 +1,335 @@
+/* *****************************************************************************
+ * Compilation:  javac-algs4 PuzzleReader.java
+ * Execution:    java-algs4 PuzzleReader puzzles [binary-output]
+ *
+ * Streams boards from a file or channel holding any number of puzzles,
+ * one board at a time, without holding the input in memory. Two formats
+ * are read, told apart by the first four bytes:
+ *
+ *   - text: the usual format, n followed by the n^2 tiles, repeated for
+ *     each puzzle and separated by any whitespace;
+ *   - binary: the bytes "PZB1", then per puzzle a byte holding n and the
+ *     n^2 tiles in row-major order, each in just enough bits for n^2 - 1,
+ *     packed least significant bit first and padded to a whole byte (so
+ *     a 3x3 record is 6 bytes, a 4x4 one 9).
+ *
+ * The input is read through a ReadableByteChannel into one reused buffer,
+ * and numbers are parsed from its bytes directly rather than through
+ * String tokens. With a file argument alone the client counts the
+ * boards; with a second it writes them to that file in binary.
+ *
+ **************************************************************************** */
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class PuzzleReader implements Iterator<Board>, Closeable {
+
+    private static final int MAGIC = 0x505A4231;   // "PZB1"
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_WIDTH = 255;      // n fits the binary width byte
+
+    private final ReadableByteChannel channel;
+    private byte[] bytes = new byte[BUFFER_SIZE];
+    private int position;      // next unread byte in bytes
+    private int limit;         // end of the bytes read
+    private long consumed;     // input bytes before bytes[0], for messages
+    private boolean exhausted; // the channel has no more bytes
+    private final boolean binary;
+
+    private Board next;        // read ahead by hasNext(); null if not yet
+    private int[][] rows = new int[0][];   // reused for every board of a width
+    private boolean[] seen = new boolean[0];  // tiles already on the board being read
+
+    // read the boards on channel, closed with this reader
+    public PuzzleReader(ReadableByteChannel channel) {
+        if (channel == null) throw new IllegalArgumentException();
+        this.channel = channel;
+        binary = available(Integer.BYTES) && readMagic();
+    }
+
+    // read the boards in file
+    public static PuzzleReader open(Path file) {
+        if (file == null) throw new IllegalArgumentException();
+        try {
+            return new PuzzleReader(FileChannel.open(file, StandardOpenOption.READ));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // is the input binary rather than text?
+    public boolean isBinary() {
+        return binary;
+    }
+
+    // is there another board? Throws IllegalArgumentException if the
+    // input is malformed
+    public boolean hasNext() {
+        if (next == null) next = binary ? readBinary() : readText();
+        return next != null;
+    }
+
+    // the next board
+    public Board next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        Board board = next;
+        next = null;
+        return board;
+    }
+
+    public void close() {
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Write every board to channel in the binary format and return how
+    // many there were; boards must be at most 255 wide. The channel is
+    // left open.
+    public static long writeBinary(Iterable<Board> boards, WritableByteChannel channel) {
+        if (boards == null || channel == null) throw new IllegalArgumentException();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        buffer.putInt(MAGIC);
+        int[] tiles = new int[0];
+        long count = 0;
+        try {
+            for (Board board : boards) {
+                count++;
+                int n = board.dimension();
+                if (n > MAX_WIDTH) {
+                    throw new IllegalArgumentException("board wider than " + MAX_WIDTH);
+                }
+                if (tiles.length != n * n) tiles = new int[n * n];
+                board.copyTo(tiles);
+
+                int bits = bitsPerTile(n);
+                int size = 1 + recordBytes(n, bits);
+                if (buffer.remaining() < size) {
+                    drain(buffer, channel);
+                    if (buffer.capacity() < size) buffer = ByteBuffer.allocate(size);
+                }
+                buffer.put((byte) n);
+                long pending = 0;
+                int pendingBits = 0;
+                for (int tile : tiles) {
+                    pending |= (long) tile << pendingBits;
+                    pendingBits += bits;
+                    while (pendingBits >= 8) {
+                        buffer.put((byte) pending);
+                        pending >>>= 8;
+                        pendingBits -= 8;
+                    }
+                }
+                if (pendingBits > 0) buffer.put((byte) pending);
+            }
+            drain(buffer, channel);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return count;
+    }
+
+    private static void drain(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // bits that hold every tile 0 to n^2 - 1
+    private static int bitsPerTile(int n) {
+        return 32 - Integer.numberOfLeadingZeros(n * n - 1);
+    }
+
+    private static int recordBytes(int n, int bits) {
+        return (n * n * bits + 7) / 8;
+    }
+
+    private boolean readMagic() {
+        int magic = (bytes[position] & 0xFF) << 24 | (bytes[position + 1] & 0xFF) << 16
+                | (bytes[position + 2] & 0xFF) << 8 | (bytes[position + 3] & 0xFF);
+        if (magic != MAGIC) return false;
+        position += Integer.BYTES;
+        return true;
+    }
+
+    // the next board of binary input, or null at its end
+    private Board readBinary() {
+        if (!available(1)) return null;
+        int n = bytes[position++] & 0xFF;
+        if (n < 2) throw malformed("board width " + n);
+        int bits = bitsPerTile(n);
+        int size = recordBytes(n, bits);
+        if (!available(size)) throw malformed("board cut short");
+
+        int[][] tiles = rows(n);
+        int mask = (1 << bits) - 1;
+        int cells = n * n;
+        clearSeen(cells);
+        long pending = 0;
+        int pendingBits = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            while (pendingBits < bits) {
+                pending |= (long) (bytes[position++] & 0xFF) << pendingBits;
+                pendingBits += 8;
+            }
+            int tile = (int) pending & mask;
+            pending >>>= bits;
+            pendingBits -= bits;
+            checkTile(tile, n);
+            tiles[cell / n][cell % n] = tile;
+        }
+        return new Board(tiles);
+    }
+
+    // the next board of text input, or null at its end
+    private Board readText() {
+        if (!skipWhitespace()) return null;
+        int n = readInt();
+        if (n < 2 || n > MAX_WIDTH) throw malformed("board width " + n);
+        int[][] tiles = rows(n);
+        clearSeen(n * n);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (!skipWhitespace()) throw malformed("board cut short");
+                int tile = readInt();
+                checkTile(tile, n);
+                tiles[i][j] = tile;
+            }
+        }
+        return new Board(tiles);
+    }
+
+    // skip to the next non-whitespace byte; false at the end of the input
+    private boolean skipWhitespace() {
+        while (true) {
+            if (position == limit && !available(1)) return false;
+            if ((bytes[position] & 0xFF) > ' ') return true;
+            position++;
+        }
+    }
+
+    // the non-negative decimal number starting at position
+    private int readInt() {
+        int value = 0;
+        int digits = 0;
+        while (position < limit || available(1)) {
+            int b = bytes[position] & 0xFF;
+            if (b <= ' ') break;
+            if (b < '0' || b > '9') throw malformed("unexpected '" + (char) b + "'");
+            // nine digits cannot overflow an int, and no width or tile needs more
+            if (++digits > 9) throw malformed("number too long");
+            value = 10 * value + (b - '0');
+            position++;
+        }
+        return value;
+    }
+
+    // reused rows for an n-by-n board; Board copies its tiles
+    private int[][] rows(int n) {
+        if (rows.length != n) rows = new int[n][n];
+        return rows;
+    }
+
+    private void clearSeen(int cells) {
+        if (seen.length != cells) {
+            seen = new boolean[cells];
+        }
+        else {
+            Arrays.fill(seen, false);
+        }
+    }
+
+    // Reject a tile that is too large or already on the board; n^2 tiles
+    // that pass are then each of 0 to n^2 - 1 exactly once.
+    private void checkTile(int tile, int n) {
+        if (tile >= n * n) throw badTile(tile, n);
+        if (seen[tile]) throw malformed("tile " + tile + " repeated");
+        seen[tile] = true;
+    }
+
+    // Make at least count unread bytes available in bytes, reading more
+    // from the channel as needed; false if the input ends first.
+    private boolean available(int count) {
+        if (limit - position >= count) return true;
+        if (exhausted) return false;
+
+        // move the unread bytes to the front, growing for big records
+        int unread = limit - position;
+        byte[] target = count > bytes.length ? new byte[Math.max(count, 2 * bytes.length)] : bytes;
+        System.arraycopy(bytes, position, target, 0, unread);
+        bytes = target;
+        consumed += position;
+        position = 0;
+        limit = unread;
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            while (limit < count) {
+                buffer.limit(bytes.length).position(limit);
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    exhausted = true;
+                    return false;
+                }
+                limit += read;
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    private IllegalArgumentException badTile(int tile, int n) {
+        return malformed("tile " + tile + " on a " + n + "x" + n + " board");
+    }
+
+    private IllegalArgumentException malformed(String problem) {
+        return new IllegalArgumentException(problem + " at byte " + (consumed + position));
+    }
+
+    // count the boards in a file, or convert it to binary (see header)
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        long count = 0;
+        try (PuzzleReader reader = open(Paths.get(args[0]))) {
+            if (args.length > 1) {
+                try (FileChannel out = FileChannel.open(Paths.get(args[1]),
+                                                        StandardOpenOption.CREATE,
+                                                        StandardOpenOption.TRUNCATE_EXISTING,
+                                                        StandardOpenOption.WRITE)) {
+                    count = writeBinary(() -> reader, out);
+                }
+            }
+            else {
+                while (reader.hasNext()) {
+                    reader.next();
+                    count++;
+                }
+            }
+        }
+        StdOut.println(count + " boards in "
+                       + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
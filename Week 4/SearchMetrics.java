@@ -0,0 +1,140 @@
+/* *****************************************************************************
+ * Compilation:  javac-algs4 SearchMetrics.java
+ *
+ * What one search did: boards expanded and generated, duplicates pruned,
+ * the frontier's peak size, time spent in the heuristic, and an estimate
+ * of the bytes its node storage held. Engines count into an instance as
+ * they go, with plain field increments; Solver hands the caller a copy.
+ *
+ * The counts are always kept, as they cost next to nothing. Timing the
+ * heuristic costs two clock reads per call, so it is done only when the
+ * system property puzzle.metrics.timing is true; otherwise
+ * heuristicNanos() is 0.
+ *
+ * While Java Flight Recorder runs, every search also emits a puzzle.Solve
+ * event, and a puzzle.SearchProgress event every PROGRESS_INTERVAL
+ * expansions. Loading the event classes takes a fifth of a second, so
+ * they are left untouched until a recording has started; after that an
+ * event that no recording enables costs a flag check.
+ *
+ **************************************************************************** */
+
+import jdk.jfr.FlightRecorder;
+
+public class SearchMetrics {
+
+    // time the heuristic? Fixed at startup, so the JIT drops the timing
+    // code entirely when it is off
+    static final boolean TIMED = Boolean.getBoolean("puzzle.metrics.timing");
+
+    // expansions between progress events; a power of two
+    static final long PROGRESS_INTERVAL = 1 << 16;
+
+    long expanded;
+    long generated;
+    long duplicates;
+    long peakFrontier;
+    long heuristicCalls;
+    long heuristicNanos;
+    long footprint;
+    long elapsedNanos;
+
+    SearchMetrics() { }
+
+    // has Java Flight Recorder started, so that events may be emitted?
+    static boolean recording() {
+        return FlightRecorder.isInitialized();
+    }
+
+    void reset() {
+        expanded = 0;
+        generated = 0;
+        duplicates = 0;
+        peakFrontier = 0;
+        heuristicCalls = 0;
+        heuristicNanos = 0;
+        footprint = 0;
+        elapsedNanos = 0;
+    }
+
+    // record the frontier's size after an insert
+    void frontier(long size) {
+        if (size > peakFrontier) peakFrontier = size;
+    }
+
+    // add the counts of another search, such as one worker of a parallel
+    // search; peaks add too, as the workers' frontiers coexist
+    void add(SearchMetrics that) {
+        expanded += that.expanded;
+        generated += that.generated;
+        duplicates += that.duplicates;
+        peakFrontier += that.peakFrontier;
+        heuristicCalls += that.heuristicCalls;
+        heuristicNanos += that.heuristicNanos;
+        footprint += that.footprint;
+    }
+
+    SearchMetrics copy() {
+        SearchMetrics copy = new SearchMetrics();
+        copy.add(this);
+        copy.elapsedNanos = elapsedNanos;
+        return copy;
+    }
+
+    // emit a progress event if expanded just reached a multiple of the
+    // interval; call after counting an expansion
+    void progress(long frontierSize) {
+        if ((expanded & (PROGRESS_INTERVAL - 1)) == 0 && recording()) {
+            SearchProgressEvent.emit(this, frontierSize);
+        }
+    }
+
+    // boards expanded
+    public long expanded() {
+        return expanded;
+    }
+
+    // boards generated as children of expanded boards
+    public long generated() {
+        return generated;
+    }
+
+    // boards dropped because they were already reached or expanded at
+    // equal or lower cost
+    public long duplicates() {
+        return duplicates;
+    }
+
+    // most boards waiting on the frontier at once; for IDA*, the deepest
+    // path searched
+    public long peakFrontier() {
+        return peakFrontier;
+    }
+
+    // calls to the heuristic, when timed; 0 otherwise
+    public long heuristicCalls() {
+        return heuristicCalls;
+    }
+
+    // time spent in the heuristic, when timed; 0 otherwise
+    public long heuristicNanos() {
+        return heuristicNanos;
+    }
+
+    // approximate bytes of node storage, queues and tables the search used
+    public long footprint() {
+        return footprint;
+    }
+
+    // wall-clock time of the search
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public String toString() {
+        return "expanded=" + expanded + " generated=" + generated
+                + " duplicates=" + duplicates + " peakFrontier=" + peakFrontier
+                + " heuristicCalls=" + heuristicCalls + " heuristicNanos=" + heuristicNanos
+                + " footprint=" + footprint + " elapsedNanos=" + elapsedNanos;
+    }
+}
@@ -0,0 +1,41 @@
+/* *****************************************************************************
+ * Compilation:  javac-algs4 SearchProgressEvent.java
+ *
+ * JFR event recorded every SearchMetrics.PROGRESS_INTERVAL expansions of
+ * a search, so a long solve shows its progress and rate as it runs.
+ *
+ **************************************************************************** */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("puzzle.SearchProgress")
+@Label("Puzzle Search Progress")
+@Category("Puzzle")
+@Description("Counts of a running sliding puzzle search")
+class SearchProgressEvent extends jdk.jfr.Event {
+
+    @Label("Expanded")
+    long expanded;
+
+    @Label("Generated")
+    long generated;
+
+    @Label("Duplicates")
+    long duplicates;
+
+    @Label("Frontier")
+    long frontier;
+
+    static void emit(SearchMetrics metrics, long frontier) {
+        SearchProgressEvent event = new SearchProgressEvent();
+        if (!event.shouldCommit()) return;
+        event.expanded = metrics.expanded;
+        event.generated = metrics.generated;
+        event.duplicates = metrics.duplicates;
+        event.frontier = frontier;
+        event.commit();
+    }
+}
@@ -0,0 +1,150 @@
+/* *****************************************************************************
+ * Compilation:  javac-algs4 SolutionCache.java
+ *
+ * A bounded cache of shortest solutions, for callers that solve the same
+ * boards again and again. Boards are stored in a canonical form under the
+ * puzzle's goal-preserving symmetry: the board and its transpose (mirrored
+ * in the main diagonal, tiles renamed to match, see Board.transpose())
+ * are the same entry, the one with the smaller key, and a solution found
+ * for one is replayed for the other by swapping LEFT with UP and RIGHT
+ * with DOWN.
+ *
+ * Every board on a shortest solution is itself solved shortest by the
+ * rest of that solution, so one solve stores an entry for each board on
+ * its path. The entries share the path's move array, each with its own
+ * offset into it. The least recently used entries are evicted once the
+ * cache holds more than its capacity. The path's boards are stored from
+ * the goal end back, so the board that was solved is the most recently
+ * used, and a path longer than the capacity stores only the boards
+ * nearest its start.
+ *
+ * The methods are thread-safe; searches run outside the cache's lock, so
+ * two threads that miss on the same board both search it.
+ *
+ **************************************************************************** */
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class SolutionCache {
+
+    private final int capacity;
+    private final LinkedHashMap<Board, Entry> entries;
+    private long hits;
+    private long misses;
+
+    // the moves from a board onwards: path[offset..] for the board, or
+    // for its transpose if transposed is set
+    private static final class Entry {
+        final byte[] path;
+        final int offset;
+        final boolean transposed;
+
+        Entry(byte[] path, int offset, boolean transposed) {
+            this.path = path;
+            this.offset = offset;
+            this.transposed = transposed;
+        }
+    }
+
+    // an empty cache holding at most capacity boards
+    public SolutionCache(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException();
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Board, Entry>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Board, SolutionCache.Entry> eldest) {
+                return size() > SolutionCache.this.capacity;
+            }
+        };
+    }
+
+    // a solver for initial, from the cache or else by A* with the
+    // Manhattan heuristic
+    public Solver solve(Board initial) {
+        if (initial == null) throw new IllegalArgumentException();
+        return solve(initial, Solver.Algorithm.A_STAR, new ManhattanHeuristic(initial.dimension()));
+    }
+
+    // a solver for initial, from the cache or else by the given algorithm
+    // and admissible heuristic; a cached solver reports 0 nodes expanded
+    public Solver solve(Board initial, Solver.Algorithm algorithm, Heuristic heuristic) {
+        if (initial == null || algorithm == null || heuristic == null) {
+            throw new IllegalArgumentException();
+        }
+        if (!initial.isSolvable()) return new Solver(initial, algorithm, heuristic);
+
+        Board transpose = initial.transpose();
+        boolean transposed = transpose.key() < initial.key();
+        Board canonical = transposed ? transpose : initial;
+
+        byte[] moves = lookup(canonical, transposed);
+        if (moves != null) return new Solver(initial, moves);
+
+        Solver solver = new Solver(initial, algorithm, heuristic);
+        store(solver);
+        return solver;
+    }
+
+    // number of boards in the cache
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // number of solves answered from the cache
+    public synchronized long hits() {
+        return hits;
+    }
+
+    // number of solves that searched
+    public synchronized long misses() {
+        return misses;
+    }
+
+    // remove every board
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    // moves solving the board whose canonical form is canonical, or null;
+    // transposed tells whether canonical is that board's transpose
+    private synchronized byte[] lookup(Board canonical, boolean transposed) {
+        Entry entry = entries.get(canonical);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+
+        // the stored path is oriented like the transpose of this board
+        // when exactly one of the two was transposed
+        int flip = entry.transposed == transposed ? 0 : 2;
+        byte[] moves = new byte[entry.path.length - entry.offset];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = (byte) (entry.path[entry.offset + i] ^ flip);
+        }
+        return moves;
+    }
+
+    // store the boards on the solver's shortest solution, from its initial
+    // board on, that the cache can hold
+    private void store(Solver solver) {
+        byte[] path = solver.blankMoves();
+        int count = Math.min(path.length + 1, capacity);
+        Board[] canonical = new Board[count];
+        boolean[] transposed = new boolean[count];
+        int i = 0;
+        for (Board board : solver.solution()) {
+            if (i == count) break;
+            Board transpose = board.transpose();
+            transposed[i] = transpose.key() < board.key();
+            canonical[i] = transposed[i] ? transpose : board;
+            i++;
+        }
+        synchronized (this) {
+            // the initial board last, as the most recently used
+            for (i = count - 1; i >= 0; i--) {
+                entries.put(canonical[i], new Entry(path, i, transposed[i]));
+            }
+        }
+    }
+}
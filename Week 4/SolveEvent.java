@@ -0,0 +1,49 @@
+/* *****************************************************************************
+ * Compilation:  javac-algs4 SolveEvent.java
+ *
+ * JFR event recorded around each Solver search, with the board size,
+ * algorithm, heuristic and result, and the search's metrics.
+ *
+ **************************************************************************** */
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("puzzle.Solve")
+@Label("Puzzle Solve")
+@Category("Puzzle")
+@Description("One sliding puzzle search")
+class SolveEvent extends jdk.jfr.Event {
+
+    @Label("Width")
+    int width;
+
+    @Label("Algorithm")
+    String algorithm;
+
+    @Label("Heuristic")
+    String heuristic;
+
+    @Label("Moves")
+    @Description("Solution length; -1 if unsolvable or none was found")
+    int moves;
+
+    @Label("Expanded")
+    long expanded;
+
+    @Label("Generated")
+    long generated;
+
+    @Label("Duplicates")
+    long duplicates;
+
+    @Label("Peak Frontier")
+    long peakFrontier;
+
+    @Label("Footprint")
+    @DataAmount
+    long footprint;
+}
@@ -1,6 +1,8 @@
 /* *****************************************************************************
  * Compilation:  javac-algs4 Solver.java
- * Execution:    java-algs4 Solver puzzle04.txt
+ * Execution:    java-algs4 Solver puzzle04.txt [A_STAR | IDA_STAR | PARALLEL_A_STAR |
+ *                   BIDIRECTIONAL | DISTANCE_TABLE]
+ *                   [MANHATTAN | LINEAR_CONFLICT | WALKING_DISTANCE | PATTERN_DATABASE]
  *
  * Algs-4 Week 4 Programming Assignment:
  * https://coursera.cs.princeton.edu/algs4/assignments/8puzzle/specification.php
@@ -8,113 +10,167 @@
  **************************************************************************** */
 
 import edu.princeton.cs.algs4.In;
-import edu.princeton.cs.algs4.MinPQ;
-import edu.princeton.cs.algs4.Stack;
 import edu.princeton.cs.algs4.StdOut;
 
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
 public class Solver {
 
-    private boolean solvable;
-    private final Stack<Board> boardStack;
-
-    // Search Node helper class
-    private class SearchNode implements Comparable<SearchNode> {
-        private final Board nodeBoard;
-        private final int moves;
-        private final SearchNode previousNode;
-        private final int priority;
-
-        SearchNode(Board board) {
-            this.nodeBoard = board;
-            this.moves = 0;
-            this.previousNode = null;
-            this.priority = 0;
-        }
+    // Search algorithms a Solver can use
+    public enum Algorithm {
+        // best-first search; fast, but keeps every generated board in memory
+        A_STAR,
+        // iterative-deepening depth-first search; memory linear in moves
+        IDA_STAR,
+        // A* spread over every available processor, each owning the boards
+        // that hash to it; for single boards too hard for one core
+        PARALLEL_A_STAR,
+        // MM search from both the initial board and the goal, meeting in
+        // the middle; each side expands boards up to half the solution
+        BIDIRECTIONAL,
+        // lookup in the precomputed DistanceTable, which the first such
+        // solve maps from the cache directory, building it there if it is
+        // missing; 3x3 boards only
+        DISTANCE_TABLE
+    }
 
-        SearchNode(Board nodeBoard, int moves, SearchNode previous) {
-            this.nodeBoard = nodeBoard;
-            this.moves = moves;
-            this.previousNode = previous;
-            this.priority = nodeBoard.manhattan() + moves;
-        }
+    // A* engines keep their node arena between solves on the same thread
+    private static final ThreadLocal<AStar> A_STAR = ThreadLocal.withInitial(AStar::new);
+    private static final ThreadLocal<BidirectionalSearch> BIDIRECTIONAL =
+            ThreadLocal.withInitial(BidirectionalSearch::new);
+    private static final ThreadLocal<AnytimeAStar> ANYTIME =
+            ThreadLocal.withInitial(AnytimeAStar::new);
 
-        public int compareTo(SearchNode that) {
-            return this.priority - that.priority;
-        }
+    // Letters for the blank moves Board.LEFT, RIGHT, UP and DOWN
+    private static final String DIRECTIONS = "LRUD";
 
-    }
+    private boolean solvable;
+    private final Board initial;
+    private byte[] moves;    // blank directions of the solution; null if unsolvable
+    private SearchMetrics metrics = new SearchMetrics();   // what the search did
+    private double bound = 1;   // moves is at most bound times the optimum
 
     // find a solution to the initial board (using the A* algorithm)
     public Solver(Board initial) {
+        this(initial, Algorithm.A_STAR);
+    }
 
-        if (initial == null) throw new IllegalArgumentException();
-
-        // Create initial search Node and insert into Priority Queue
-        SearchNode initialNode = new SearchNode(initial);
-        MinPQ<SearchNode> pq = new MinPQ<>();
-        pq.insert(initialNode);
+    // find a solution to the initial board using the given algorithm
+    public Solver(Board initial, Algorithm algorithm) {
+        this(initial, algorithm,
+             initial == null ? null : new ManhattanHeuristic(initial.dimension()));
+    }
 
-        // Create Twin search node and insert into Twin Priority Queue
-        SearchNode twinNode = new SearchNode(initial.twin());
-        MinPQ<SearchNode> twinpq = new MinPQ<>();
-        twinpq.insert(twinNode);
+    // find a solution to the initial board using the given algorithm and
+    // admissible heuristic; throws CancellationException if the calling
+    // thread is interrupted during the search
+    public Solver(Board initial, Algorithm algorithm, Heuristic heuristic) {
 
-        // History Stack and Goal Stack
-        boardStack = new Stack<>();
-        Stack<SearchNode> goalBoard = new Stack<>();
+        if (initial == null || algorithm == null || heuristic == null) {
+            throw new IllegalArgumentException();
+        }
+        if (heuristic.dimension() != initial.dimension()) throw new IllegalArgumentException();
 
-        // While Loop
-        while (!pq.isEmpty() && !twinpq.isEmpty()) {
+        this.initial = initial;
 
-            // Remove SearchNode with smallest priority in each pq
-            SearchNode currentNode = pq.delMin();
-            SearchNode currentTwinNode = twinpq.delMin();
+        // Decide solvability by parity up front; only solvable boards are
+        // searched, and those always reach the goal
+        this.solvable = initial.isSolvable();
+        if (!solvable) return;
 
+        SolveEvent event = SearchMetrics.recording() ? new SolveEvent() : null;
+        if (event != null) event.begin();
+        long start = System.nanoTime();
+        TimedHeuristic timed = SearchMetrics.TIMED ? new TimedHeuristic(heuristic) : null;
+        Heuristic h = timed != null ? timed : heuristic;
 
-            SearchNode previousNode = currentNode.previousNode;
-            SearchNode previousTwinNode = currentTwinNode.previousNode;
+        if (algorithm == Algorithm.DISTANCE_TABLE) {
+            if (initial.dimension() != 3) throw new IllegalArgumentException();
+            moves = DistanceTable.shared().solve(initial);
+        }
+        else if (algorithm == Algorithm.IDA_STAR) {
+            IdaStar search = new IdaStar(initial, h);
+            moves = search.solve();
+            metrics = search.metrics().copy();
+        }
+        else if (algorithm == Algorithm.PARALLEL_A_STAR) {
+            ParallelAStar search = new ParallelAStar(Runtime.getRuntime().availableProcessors());
+            moves = search.solve(initial, h);
+            metrics = search.metrics();
+        }
+        else if (algorithm == Algorithm.BIDIRECTIONAL) {
+            BidirectionalSearch search = BIDIRECTIONAL.get();
+            moves = search.solve(initial, h);
+            metrics = search.metrics().copy();
+        }
+        else {
+            AStar search = A_STAR.get();
+            moves = search.solve(initial, h);
+            metrics = search.metrics().copy();
+        }
+        finish(event, start, timed, algorithm.name(), heuristic);
+    }
 
-            // Check if SearchNode board is goal
-            if (currentNode.nodeBoard.isGoal()) {
-                this.solvable = true;
-                goalBoard.push(currentNode);
-                break;
-            }
-            // Check if Twin SearchNode board is goal
-            else if (currentTwinNode.nodeBoard.isGoal()) {
-                this.solvable = false;
-                break;
-            }
-            else {
-                for (Board pqBoard : currentNode.nodeBoard.neighbors()) {
-                    if (previousNode == null || !pqBoard.equals(previousNode.nodeBoard)) {
-                        pq.insert(new SearchNode(pqBoard, currentNode.moves + 1,
-                                                 currentNode));
-                    }
-
-                }
-
-                for (Board pqTwinBoard : currentTwinNode.nodeBoard.neighbors()) {
-                    if (previousTwinNode == null || !pqTwinBoard
-                            .equals(previousTwinNode.nodeBoard)) {
-                        twinpq.insert(new SearchNode(pqTwinBoard, currentTwinNode.moves + 1,
-                                                     currentTwinNode));
-                    }
-                }
+    // a solved initial board whose shortest solution is already known
+    Solver(Board initial, byte[] moves) {
+        this.initial = initial;
+        this.solvable = true;
+        this.moves = moves;
+    }
 
-            }
-        }
+    // find the best solution to the initial board that anytime weighted A*
+    // (ARA*) reaches within millis milliseconds and maxExpansions expanded
+    // boards, guided by the consistent heuristic; the search stops early
+    // once the solution is proved optimal. If no solution is found in
+    // time, moves() is -1 and solution() null, although the board is
+    // solvable. A millis of Long.MAX_VALUE, or any too large to add to the
+    // clock, sets no time limit.
+    public Solver(Board initial, Heuristic heuristic, long millis, long maxExpansions) {
+
+        if (initial == null || heuristic == null) throw new IllegalArgumentException();
+        if (heuristic.dimension() != initial.dimension()) throw new IllegalArgumentException();
+        if (millis < 0 || maxExpansions < 0) throw new IllegalArgumentException();
+
+        SolveEvent event = SearchMetrics.recording() ? new SolveEvent() : null;
+        if (event != null) event.begin();
+        long start = System.nanoTime();
+        long deadline = millis >= Long.MAX_VALUE / 1_000_000 ? AnytimeAStar.NO_DEADLINE
+                                                             : start + millis * 1_000_000;
+        this.initial = initial;
+        this.solvable = initial.isSolvable();
+        if (!solvable) return;
+
+        TimedHeuristic timed = SearchMetrics.TIMED ? new TimedHeuristic(heuristic) : null;
+        AnytimeAStar search = ANYTIME.get();
+        search.solve(initial, timed != null ? timed : heuristic, deadline, maxExpansions);
+        moves = search.path();
+        metrics = search.metrics().copy();
+        bound = search.bound();
+        finish(event, start, timed, "ANYTIME", heuristic);
+    }
 
-        // Check if unsolvable and Reverse stack order
-        if (!goalBoard.isEmpty()) {
-            SearchNode list = goalBoard.pop();
-            while (list.previousNode != null) {
-                boardStack.push(list.nodeBoard);
-                list = list.previousNode;
-            }
-            boardStack.push(list.nodeBoard);
+    // complete the metrics of a search begun at start, and record it to JFR
+    // if a recording has started (event is null if not)
+    private void finish(SolveEvent event, long start, TimedHeuristic timed,
+                        String algorithm, Heuristic heuristic) {
+        metrics.elapsedNanos = System.nanoTime() - start;
+        if (timed != null) timed.report(metrics);
+
+        if (event == null) return;
+        event.end();
+        if (event.shouldCommit()) {
+            event.width = initial.dimension();
+            event.algorithm = algorithm;
+            event.heuristic = heuristic.getClass().getSimpleName();
+            event.moves = moves();
+            event.expanded = metrics.expanded();
+            event.generated = metrics.generated();
+            event.duplicates = metrics.duplicates();
+            event.peakFrontier = metrics.peakFrontier();
+            event.footprint = metrics.footprint();
+            event.commit();
         }
-
     }
 
 
@@ -123,17 +179,91 @@ public class Solver {
         return solvable;
     }
 
-    // min number of moves to solve initial board; -1 if unsolvable
+    // min number of moves to solve initial board; -1 if unsolvable. For an
+    // anytime search, the moves of the best solution it found
     public int moves() {
-        return boardStack.size() - 1;
+        if (moves == null) return -1;
+        return moves.length;
+    }
+
+    // moves() is at most this factor times the fewest possible: 1 for the
+    // optimal searches, and for an anytime search the factor it proved,
+    // which is infinite if it ran out of time before proving any
+    public double suboptimalityBound() {
+        return bound;
+    }
+
+    // is moves() proved to be the fewest possible?
+    public boolean isOptimal() {
+        return bound == 1;
     }
 
-    // sequence of boards in a shortest solution; null if unsolvable
+    // sequence of boards in a shortest solution (or the best an anytime
+    // search found); null if unsolvable.
+    // Boards are rebuilt from the stored moves as the iteration reaches them.
     public Iterable<Board> solution() {
-        if (boardStack.size() == 0) return null;
-        return boardStack;
+        if (moves == null) return null;
+        return () -> new Iterator<Board>() {
+            private Board next = initial;
+            private int i = 0;
+
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            public Board next() {
+                if (next == null) throw new NoSuchElementException();
+                Board current = next;
+                next = i < moves.length ? current.move(moves[i++]) : null;
+                return current;
+            }
+        };
     }
 
+    // the blank moves of the solution, shared rather than copied; null if
+    // unsolvable
+    byte[] blankMoves() {
+        return moves;
+    }
+
+    // number of boards the search expanded; 0 if unsolvable or solved by
+    // the distance table
+    public long nodesExpanded() {
+        return metrics.expanded();
+    }
+
+    // what the search did; all zero if there was no search
+    public SearchMetrics metrics() {
+        return metrics;
+    }
+
+    // the blank's moves in the solution, one letter per move
+    // (L, R, U or D); null if unsolvable
+    public String moveSequence() {
+        if (moves == null) return null;
+        StringBuilder s = new StringBuilder(moves.length);
+        for (byte move : moves) {
+            s.append(DIRECTIONS.charAt(move));
+        }
+        return s.toString();
+    }
+
+
+    // heuristic for n-by-n boards by name, as given to the test client
+    static Heuristic heuristic(String name, int n) {
+        switch (name) {
+            case "MANHATTAN":
+                return new ManhattanHeuristic(n);
+            case "LINEAR_CONFLICT":
+                return new LinearConflictHeuristic(n);
+            case "WALKING_DISTANCE":
+                return new WalkingDistanceHeuristic(n);
+            case "PATTERN_DATABASE":
+                return PatternDatabase.forWidth(n);
+            default:
+                throw new IllegalArgumentException("unknown heuristic " + name);
+        }
+    }
 
     // test client (see below)
     public static void main(String[] args) {
@@ -148,7 +278,9 @@ public class Solver {
         Board initial = new Board(tiles);
 
         // solve the puzzle
-        Solver solver = new Solver(initial);
+        Algorithm algorithm = args.length > 1 ? Algorithm.valueOf(args[1]) : Algorithm.A_STAR;
+        Heuristic heuristic = heuristic(args.length > 2 ? args[2] : "MANHATTAN", n);
+        Solver solver = new Solver(initial, algorithm, heuristic);
 
 
         // print solution to standard output
@@ -156,6 +288,7 @@ public class Solver {
             StdOut.println("No solution possible");
         else {
             StdOut.println("Minimum number of moves = " + solver.moves());
+            StdOut.println("Blank moves = " + solver.moveSequence());
             for (Board board : solver.solution())
                 StdOut.println(board);
         }
@@ -0,0 +1,53 @@
+/* *****************************************************************************
+ * Compilation:  javac-algs4 TimedHeuristic.java
+ *
+ * Heuristic wrapper that counts the calls to another heuristic and the
+ * time they take. Solver wraps the heuristic only when
+ * SearchMetrics.TIMED is set, so untimed searches call the heuristic
+ * directly. The totals are LongAdders, as a parallel search calls one
+ * heuristic from every worker.
+ *
+ **************************************************************************** */
+
+import java.util.concurrent.atomic.LongAdder;
+
+class TimedHeuristic implements Heuristic {
+
+    private final Heuristic heuristic;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    TimedHeuristic(Heuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    public int dimension() {
+        return heuristic.dimension();
+    }
+
+    public int evaluate(int[] tiles) {
+        long start = System.nanoTime();
+        int value = heuristic.evaluate(tiles);
+        nanos.add(System.nanoTime() - start);
+        calls.increment();
+        return value;
+    }
+
+    public int update(int[] tiles, int value, int tile, int from, int to) {
+        long start = System.nanoTime();
+        int updated = heuristic.update(tiles, value, tile, from, to);
+        nanos.add(System.nanoTime() - start);
+        calls.increment();
+        return updated;
+    }
+
+    public int estimate(int value) {
+        return heuristic.estimate(value);
+    }
+
+    // copy the totals into metrics
+    void report(SearchMetrics metrics) {
+        metrics.heuristicCalls = calls.sum();
+        metrics.heuristicNanos = nanos.sum();
+    }
+}
@@ -0,0 +1,155 @@
+/* *****************************************************************************
+ * Compilation:  javac-algs4 WalkingDistanceHeuristic.java
+ *
+ * Walking distance (Takahashi). Looking only at rows, a board reduces to
+ * how many tiles of each goal row every row holds, plus the blank's row;
+ * a vertical move sends one tile through the blank to the next row. The
+ * exact number of such moves back to the goal counts is found once by a
+ * breadth-first search, and the same table serves columns, since
+ * transposing a board maps the goal onto itself. Vertical and horizontal
+ * moves are disjoint, so the two lookups add up to an admissible bound
+ * that dominates Manhattan distance.
+ *
+ * The states are numbered in the order the search reaches them, and a
+ * value holds the numbers of the row and column states rather than the
+ * bound (see estimate()). A move then changes one count in each of two
+ * lines and the blank's line, which update() applies to the stored
+ * state's key without reading the board.
+ *
+ **************************************************************************** */
+
+import java.util.Arrays;
+
+public class WalkingDistanceHeuristic implements Heuristic {
+
+    private static final int MAX_WIDTH = 4;   // 24964 states at 4x4
+    private static final int COUNT_BITS = 3;
+    private static final int STATE_BITS = 15;   // a state number
+    private static final int STATE_MASK = (1 << STATE_BITS) - 1;
+
+    private final int width;
+    private final LongIntTable states;  // row state key -> its number
+    private long[] keys;                // number -> row state key
+    private byte[] moves;               // number -> moves to the goal
+
+    // walking distance on n-by-n boards, n <= 4
+    public WalkingDistanceHeuristic(int width) {
+        if (width < 2 || width > MAX_WIDTH) throw new IllegalArgumentException();
+        this.width = width;
+        this.states = new LongIntTable();
+
+        // goal: every row full of its own tiles, except the blank's
+        int[][] counts = new int[width][width];
+        for (int row = 0; row < width; row++) {
+            counts[row][row] = row == width - 1 ? width - 1 : width;
+        }
+        keys = new long[] { encode(counts, width - 1) };
+        moves = new byte[1];
+        states.put(keys[0], 0);
+
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            int distance = moves[head];
+            int blankRow = decode(keys[head++], counts);
+            // swap the blank with a tile of goal row g in a row next to it
+            for (int row = blankRow - 1; row <= blankRow + 1; row += 2) {
+                if (row < 0 || row >= width) continue;
+                for (int g = 0; g < width; g++) {
+                    if (counts[row][g] == 0) continue;
+                    counts[row][g]--;
+                    counts[blankRow][g]++;
+                    long next = encode(counts, row);
+                    counts[blankRow][g]--;
+                    counts[row][g]++;
+                    if (states.get(next) >= 0) continue;
+                    states.put(next, tail);
+                    if (tail == keys.length) {
+                        keys = Arrays.copyOf(keys, 2 * tail);
+                        moves = Arrays.copyOf(moves, 2 * tail);
+                    }
+                    keys[tail] = next;
+                    moves[tail++] = (byte) (distance + 1);
+                }
+            }
+        }
+        keys = Arrays.copyOf(keys, tail);
+        moves = Arrays.copyOf(moves, tail);
+    }
+
+    // key of a row state: a count per (row, goal row) pair, then the blank row
+    private long encode(int[][] counts, int blankRow) {
+        long key = blankRow;
+        for (int row = 0; row < width; row++) {
+            for (int g = 0; g < width; g++) {
+                key = key << COUNT_BITS | counts[row][g];
+            }
+        }
+        return key;
+    }
+
+    // inverse of encode; returns the blank row
+    private int decode(long key, int[][] counts) {
+        for (int row = width - 1; row >= 0; row--) {
+            for (int g = width - 1; g >= 0; g--) {
+                counts[row][g] = (int) (key & ((1 << COUNT_BITS) - 1));
+                key >>>= COUNT_BITS;
+            }
+        }
+        return (int) key;
+    }
+
+    // bit offset of the (line, goal line) count within a key
+    private int shift(int line, int goal) {
+        return COUNT_BITS * ((width - 1 - line) * width + (width - 1 - goal));
+    }
+
+    private int blankShift() {
+        return COUNT_BITS * width * width;
+    }
+
+    // key of the rows of tiles, or of its columns if columns is true
+    private long key(int[] tiles, boolean columns) {
+        long key = 0;
+        for (int cell = 0; cell < tiles.length; cell++) {
+            int line = columns ? cell % width : cell / width;
+            if (tiles[cell] == 0) {
+                key |= (long) line << blankShift();
+            }
+            else {
+                int goal = columns ? (tiles[cell] - 1) % width : (tiles[cell] - 1) / width;
+                key += 1L << shift(line, goal);
+            }
+        }
+        return key;
+    }
+
+    public int dimension() {
+        return width;
+    }
+
+    // the row state's number, then the column state's
+    public int evaluate(int[] tiles) {
+        return states.get(key(tiles, false)) << STATE_BITS | states.get(key(tiles, true));
+    }
+
+    // A sideways move changes only the column state and a vertical one only
+    // the row state: the tile leaves the count of its goal line in the from
+    // line for that in the to line, and the blank's line goes the other way.
+    public int update(int[] tiles, int value, int tile, int from, int to) {
+        boolean columns = from / width == to / width;
+        int fromLine = columns ? from % width : from / width;
+        int toLine = columns ? to % width : to / width;
+        int goal = columns ? (tile - 1) % width : (tile - 1) / width;
+
+        int shift = columns ? 0 : STATE_BITS;
+        long before = keys[value >>> shift & STATE_MASK];
+        long after = before + (1L << shift(toLine, goal)) - (1L << shift(fromLine, goal))
+                + ((long) fromLine << blankShift()) - ((long) toLine << blankShift());
+        return value & ~(STATE_MASK << shift) | states.get(after) << shift;
+    }
+
+    public int estimate(int value) {
+        return moves[value >>> STATE_BITS] + moves[value & STATE_MASK];
+    }
+}
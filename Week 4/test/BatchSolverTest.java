@@ -0,0 +1,115 @@
+/* *****************************************************************************
+ * Tests of BatchSolver's results.
+ *
+ **************************************************************************** */
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchSolverTest {
+
+    // 4 moves
+    private static final Board BOARD = new Board(new int[][] {
+            { 0, 1, 3 }, { 4, 2, 5 }, { 7, 8, 6 }
+    });
+
+    @TempDir
+    Path directory;
+    private String cacheDirectory;   // puzzle.cache.dir before the test
+
+    // keep the tables in the temporary directory, the shared one unloaded
+    @BeforeEach
+    void setUp() {
+        cacheDirectory = System.getProperty("puzzle.cache.dir");
+        System.setProperty("puzzle.cache.dir", directory.toString());
+        DistanceTable.forgetShared();
+    }
+
+    @AfterEach
+    void tearDown() {
+        DistanceTable.forgetShared();
+        if (cacheDirectory == null) System.clearProperty("puzzle.cache.dir");
+        else System.setProperty("puzzle.cache.dir", cacheDirectory);
+    }
+
+    // 1 move
+    private static final Board BOARD_4X4 = new Board(new int[][] {
+            { 1, 2, 3, 4 }, { 5, 6, 7, 8 }, { 9, 10, 11, 12 }, { 13, 14, 0, 15 }
+    });
+
+    // the results of solving board count times
+    private static List<BatchSolver.Result> solveAll(BatchSolver batch, Board board, int count)
+            throws InterruptedException {
+        List<BatchSolver.Result> results = new CopyOnWriteArrayList<>();
+        try (batch) {
+            for (int i = 0; i < count; i++) {
+                batch.submit("test", i, board, results::add);
+            }
+        }
+        assertEquals(count, results.size());
+        return results;
+    }
+
+    private static BatchSolver.Result solve(BatchSolver batch) throws InterruptedException {
+        List<BatchSolver.Result> results = new CopyOnWriteArrayList<>();
+        try (batch) {
+            batch.submit("test", 0, BOARD, results::add);
+        }
+        assertEquals(1, results.size());
+        return results.get(0);
+    }
+
+    @Test
+    void failureKeepsItsException() throws InterruptedException {
+        BatchSolver.Result result = solve(new BatchSolver(1, 0, Solver.Algorithm.A_STAR, "NONE"));
+        assertEquals(BatchSolver.Status.FAILED, result.status());
+        assertTrue(result.error().contains("unknown heuristic NONE"), result.error());
+        assertTrue(result.toString().endsWith(result.error()));
+    }
+
+    @Test
+    void everyAlgorithmSolves() throws InterruptedException {
+        for (Solver.Algorithm algorithm : new Solver.Algorithm[] {
+                Solver.Algorithm.BIDIRECTIONAL, Solver.Algorithm.DISTANCE_TABLE }) {
+            BatchSolver.Result result = solve(new BatchSolver(1, 0, algorithm, "MANHATTAN"));
+            assertEquals(BatchSolver.Status.SOLVED, result.status(), algorithm.name());
+            assertEquals(4, result.moves());
+            assertNull(result.error());
+        }
+    }
+
+    @Test
+    void anytimeSolves() throws InterruptedException {
+        for (long timeout : new long[] { 0, 10_000 }) {
+            BatchSolver.Result result = solve(BatchSolver.anytime(1, timeout, "LINEAR_CONFLICT"));
+            assertEquals(BatchSolver.Status.SOLVED, result.status());
+            assertEquals(4, result.moves());
+        }
+    }
+
+    // with a cold cache the first puzzles wait for a table that takes far
+    // longer than the timeout to build, which it must not cut short
+    @Test
+    void coldTablesAreBuiltBeforeTheTimeout() throws InterruptedException {
+        for (BatchSolver.Result result : solveAll(
+                new BatchSolver(4, 100, Solver.Algorithm.DISTANCE_TABLE, "MANHATTAN"), BOARD, 8)) {
+            assertEquals(BatchSolver.Status.SOLVED, result.status(), result.toString());
+            assertEquals(4, result.moves());
+        }
+        for (BatchSolver.Result result : solveAll(
+                new BatchSolver(4, 100, Solver.Algorithm.A_STAR, "PATTERN_DATABASE"), BOARD_4X4, 8)) {
+            assertEquals(BatchSolver.Status.SOLVED, result.status(), result.toString());
+            assertEquals(1, result.moves());
+        }
+    }
+}
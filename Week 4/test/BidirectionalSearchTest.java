@@ -0,0 +1,87 @@
+/* *****************************************************************************
+ * Tests of bidirectional MM search against A*.
+ *
+ **************************************************************************** */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BidirectionalSearchTest {
+
+    // board reached from the goal by steps random blank moves
+    private static Board scramble(int width, int steps, SplittableRandom random) {
+        Board board = Board.goal(width);
+        for (int step = 0; step < steps; step++) {
+            int direction = random.nextInt(4);
+            if (Board.target(board.blankIndex(), direction, width) >= 0) {
+                board = board.move(direction);
+            }
+        }
+        return board;
+    }
+
+    // solve count random boards on one reused search, checking that each
+    // path reaches the goal in as many moves as A* takes
+    private static void compare(int width, int steps, int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        BidirectionalSearch search = new BidirectionalSearch();
+        for (Heuristic heuristic : new Heuristic[] {
+                new ManhattanHeuristic(width), new LinearConflictHeuristic(width) }) {
+            for (int i = 0; i < count; i++) {
+                Board board = scramble(width, steps, random);
+                int optimal = new AStar().solve(board, heuristic).length;
+                byte[] path = search.solve(board, heuristic);
+                assertEquals(optimal, path.length, board.toString());
+                Board end = board;
+                for (byte direction : path) {
+                    end = end.move(direction);
+                }
+                assertTrue(end.isGoal());
+            }
+        }
+    }
+
+    @Test
+    void matchesAStar3x3() {
+        compare(3, 100, 50, 21);
+    }
+
+    @Test
+    void matchesAStar4x4() {
+        compare(4, 60, 15, 22);
+    }
+
+    @Test
+    void matchesAStar5x5() {
+        compare(5, 30, 10, 23);
+    }
+
+    @Test
+    void solvesGoalAndOneMove() {
+        BidirectionalSearch search = new BidirectionalSearch();
+        Board goal = Board.goal(4);
+        assertEquals(0, search.solve(goal, new ManhattanHeuristic(4)).length);
+        Board board = goal.move(Board.LEFT);
+        assertEquals(1, search.solve(board, new ManhattanHeuristic(4)).length);
+    }
+
+    // distances to any target board, which the backward side estimates
+    @Test
+    void manhattanToTargetBoard() {
+        SplittableRandom random = new SplittableRandom(24);
+        Board target = scramble(4, 60, random);
+        ManhattanHeuristic toTarget = new ManhattanHeuristic(target);
+        int[] tiles = new int[16];
+        target.copyTo(tiles);
+        assertEquals(0, toTarget.evaluate(tiles));
+
+        Board goal = Board.goal(4);
+        goal.copyTo(tiles);
+        // Manhattan distance is symmetric between the two boards
+        assertEquals(target.manhattan(), toTarget.evaluate(tiles));
+    }
+}
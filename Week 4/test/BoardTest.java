@@ -0,0 +1,206 @@
+/* *****************************************************************************
+ * Tests of Board's packed tiles and incrementally updated distances.
+ *
+ **************************************************************************** */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoardTest {
+
+    private static int[][] rows(int[] tiles, int width) {
+        int[][] rows = new int[width][width];
+        for (int cell = 0; cell < tiles.length; cell++) {
+            rows[cell / width][cell % width] = tiles[cell];
+        }
+        return rows;
+    }
+
+    private static int hamming(int[] tiles) {
+        int count = 0;
+        for (int cell = 0; cell < tiles.length; cell++) {
+            if (tiles[cell] != 0 && tiles[cell] != cell + 1) count++;
+        }
+        return count;
+    }
+
+    private static int manhattan(int[] tiles, int width) {
+        int sum = 0;
+        for (int cell = 0; cell < tiles.length; cell++) {
+            int goal = tiles[cell] - 1;
+            if (goal < 0) continue;
+            sum += Math.abs(cell / width - goal / width) + Math.abs(cell % width - goal % width);
+        }
+        return sum;
+    }
+
+    // slide the blank at random from the goal with move(), checking after
+    // every move that the board equals one built from scratch
+    private static void walk(int width, int steps, long seed) {
+        int[] tiles = new int[width * width];
+        for (int i = 0; i < tiles.length - 1; i++) {
+            tiles[i] = i + 1;
+        }
+        int blank = tiles.length - 1;
+        Board board = new Board(rows(tiles, width));
+
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int step = 0; step < steps; step++) {
+            int direction = random.nextInt(4);
+            int target = Board.target(blank, direction, width);
+            if (target < 0) continue;
+            tiles[blank] = tiles[target];
+            tiles[target] = 0;
+            blank = target;
+            board = board.move(direction);
+
+            Board built = new Board(rows(tiles, width));
+            assertEquals(built, board);
+            assertEquals(built.hashCode(), board.hashCode());
+            assertEquals(built.key(), board.key());
+            assertEquals(built.toString(), board.toString());
+            assertEquals(hamming(tiles), board.hamming());
+            assertEquals(manhattan(tiles, width), board.manhattan());
+            assertEquals(hamming(tiles) == 0, board.isGoal());
+            for (int cell = 0; cell < tiles.length; cell++) {
+                assertEquals(tiles[cell], board.tileAt(cell));
+            }
+            assertTrue(board.isSolvable());
+            assertFalse(board.twin().isSolvable());
+        }
+    }
+
+    @Test
+    void movesMatchBoardsBuiltFromTiles() {
+        for (int width = 2; width <= 5; width++) {
+            walk(width, 2000, width);
+        }
+    }
+
+    @Test
+    void movesMatchBoardsBuiltFromTilesAboveOneBytePerTile() {
+        walk(17, 500, 17);
+    }
+
+    @Test
+    void twinSwapsTwoTiles() {
+        for (int width = 2; width <= 5; width++) {
+            Board board = Board.goal(width);
+            Board twin = board.twin();
+            assertNotEquals(board, twin);
+            int differences = 0;
+            for (int cell = 0; cell < width * width; cell++) {
+                if (board.tileAt(cell) != twin.tileAt(cell)) {
+                    assertNotEquals(0, twin.tileAt(cell));
+                    differences++;
+                }
+            }
+            assertEquals(2, differences);
+        }
+    }
+
+    @Test
+    void boardsOfDifferentWidthsDiffer() {
+        Board small = new Board(new int[][] { { 1, 2 }, { 3, 0 } });
+        Board large = new Board(new int[][] { { 1, 2, 0 }, { 3, 4, 5 }, { 6, 7, 8 } });
+        assertNotEquals(small, large);
+        assertNotEquals(small, null);
+    }
+
+    // the visitor reports each neighbor's key, moved tile and distance
+    // changes as they are on the neighbor itself, in neighbors()' order
+    @Test
+    void visitorMatchesNeighbors() {
+        SplittableRandom random = new SplittableRandom(16);
+        for (int width = 2; width <= 5; width++) {
+            Board board = Board.goal(width);
+            for (int step = 0; step < 500; step++) {
+                Board current = board;
+                List<Board> neighbors = new ArrayList<>();
+                for (Board neighbor : current.neighbors()) {
+                    neighbors.add(neighbor);
+                }
+                for (int previous = -1; previous <= Board.DOWN; previous++) {
+                    int skipped = previous;
+                    List<Board> visited = new ArrayList<>();
+                    int count = current.forEachNeighbor(previous,
+                            (direction, key, tile, from, to, hammingDelta, manhattanDelta) -> {
+                                assertNotEquals(skipped ^ 1, direction);
+                                Board neighbor = current.move(direction);
+                                assertEquals(neighbor.key(), key);
+                                assertEquals(current.tileAt(from), tile);
+                                assertEquals(current.blankIndex(), to);
+                                assertEquals(neighbor.blankIndex(), from);
+                                assertEquals(neighbor.hamming() - current.hamming(), hammingDelta);
+                                assertEquals(neighbor.manhattan() - current.manhattan(),
+                                             manhattanDelta);
+                                visited.add(neighbor);
+                            });
+                    assertEquals(visited.size(), count);
+                    if (previous < 0) {
+                        assertEquals(neighbors, visited);
+                    }
+                    else {
+                        assertTrue(neighbors.containsAll(visited));
+                    }
+                }
+                board = neighbors.get(random.nextInt(neighbors.size()));
+            }
+        }
+    }
+
+    // every arrangement of the 3x3 tiles is solvable exactly when breadth-
+    // first search from the goal reaches it
+    @Test
+    void parityMatchesReachability() {
+        Set<Board> reached = new HashSet<>();
+        Queue<Board> queue = new ArrayDeque<>();
+        reached.add(Board.goal(3));
+        queue.add(Board.goal(3));
+        while (!queue.isEmpty()) {
+            for (Board neighbor : queue.remove().neighbors()) {
+                if (reached.add(neighbor)) queue.add(neighbor);
+            }
+        }
+
+        int[] tiles = { 0, 1, 2, 3, 4, 5, 6, 7, 8 };
+        int solvable = 0;
+        do {
+            Board board = new Board(rows(tiles, 3));
+            assertEquals(reached.contains(board), board.isSolvable());
+            if (board.isSolvable()) solvable++;
+        } while (nextPermutation(tiles));
+        assertEquals(181_440, solvable);
+    }
+
+    // rearrange a into the next permutation in lexicographic order; false
+    // if a was the last
+    private static boolean nextPermutation(int[] a) {
+        int i = a.length - 2;
+        while (i >= 0 && a[i] >= a[i + 1]) i--;
+        if (i < 0) return false;
+        int j = a.length - 1;
+        while (a[j] <= a[i]) j--;
+        int temp = a[i];
+        a[i] = a[j];
+        a[j] = temp;
+        for (int lo = i + 1, hi = a.length - 1; lo < hi; lo++, hi--) {
+            temp = a[lo];
+            a[lo] = a[hi];
+            a[hi] = temp;
+        }
+        return true;
+    }
+}
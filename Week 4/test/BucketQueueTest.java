@@ -0,0 +1,77 @@
+/* *****************************************************************************
+ * Tests of BucketQueue's order against a binary heap.
+ *
+ **************************************************************************** */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BucketQueueTest {
+
+    // items are their own index into f and g; ties in (f, g) may come out
+    // in any order, so only the priorities are compared
+    @Test
+    void delMinMatchesHeapOrder() {
+        int count = 100_000;
+        int[] f = new int[count];
+        int[] g = new int[count];
+        BucketQueue queue = new BucketQueue();
+        PriorityQueue<Integer> heap = new PriorityQueue<>(
+                (a, b) -> f[a] != f[b] ? Integer.compare(f[a], f[b]) : Integer.compare(g[b], g[a]));
+
+        SplittableRandom random = new SplittableRandom(6);
+        int item = 0;
+        int floor = 0;
+        while (item < count || !heap.isEmpty()) {
+            if (item < count && (heap.isEmpty() || random.nextInt(3) > 0)) {
+                // like a search, mostly near the smallest f, now and then far
+                // above it, past the queue's initial capacity
+                f[item] = floor + (random.nextInt(50) == 0 ? random.nextInt(200) : random.nextInt(4));
+                g[item] = random.nextInt(f[item] + 1);
+                queue.insert(item, f[item], g[item]);
+                heap.add(item);
+                item++;
+            }
+            else {
+                int expected = heap.remove();
+                assertEquals(f[expected], queue.minPriority());
+                int actual = queue.delMin();
+                assertEquals(f[expected], f[actual]);
+                assertEquals(g[expected], g[actual]);
+                floor = f[actual];
+            }
+            assertEquals(heap.size(), queue.size());
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void clearEmptiesQueue() {
+        BucketQueue queue = new BucketQueue();
+        queue.insert(1, 10, 3);
+        queue.insert(2, 100, 50);
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        assertThrows(NoSuchElementException.class, queue::delMin);
+        queue.insert(3, 5, 5);
+        queue.insert(4, 5, 2);
+        queue.insert(5, 4, 0);
+        assertEquals(5, queue.delMin());
+        assertEquals(3, queue.delMin());
+        assertEquals(4, queue.delMin());
+    }
+
+    @Test
+    void rejectsGAboveF() {
+        BucketQueue queue = new BucketQueue();
+        assertThrows(IllegalArgumentException.class, () -> queue.insert(1, 3, 4));
+        assertThrows(IllegalArgumentException.class, () -> queue.insert(1, 3, -1));
+    }
+}
@@ -0,0 +1,101 @@
+/* *****************************************************************************
+ * Tests of DistanceTable's descent over a mapped file.
+ *
+ **************************************************************************** */
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DistanceTableTest {
+
+    // 4 moves
+    private static final Board BOARD = new Board(new int[][] {
+            { 0, 1, 3 }, { 4, 2, 5 }, { 7, 8, 6 }
+    });
+
+    @TempDir
+    Path directory;
+    private String cacheDirectory;   // puzzle.cache.dir before the test
+
+    // keep the shared table in the temporary directory, unloaded
+    @BeforeEach
+    void setUp() {
+        cacheDirectory = System.getProperty("puzzle.cache.dir");
+        System.setProperty("puzzle.cache.dir", directory.toString());
+        DistanceTable.forgetShared();
+    }
+
+    @AfterEach
+    void tearDown() {
+        DistanceTable.forgetShared();
+        if (cacheDirectory == null) System.clearProperty("puzzle.cache.dir");
+        else System.setProperty("puzzle.cache.dir", cacheDirectory);
+    }
+
+    // a file with a valid header and size whose entries are all fill
+    private Path corrupt(byte fill) throws IOException {
+        Path file = directory.resolve("distances.bin");
+        DistanceTable.open(file);
+        byte[] bytes = Files.readAllBytes(file);
+        Arrays.fill(bytes, 2 * Integer.BYTES, bytes.length, fill);
+        Files.write(file, bytes);
+        return file;
+    }
+
+    @Test
+    void solvesFromBuiltFile() {
+        DistanceTable table = DistanceTable.open(directory.resolve("distances.bin"));
+        assertEquals(4, table.distance(BOARD));
+        assertEquals(4, table.solve(BOARD).length);
+    }
+
+    @Test
+    void rejectsTableWithoutDescent() throws IOException {
+        DistanceTable table = DistanceTable.open(corrupt((byte) 0xFF));
+        assertThrows(IllegalStateException.class, () -> table.solve(BOARD));
+    }
+
+    @Test
+    void rejectsTableThatMissesGoal() throws IOException {
+        DistanceTable table = DistanceTable.open(corrupt((byte) 0));
+        assertThrows(IllegalStateException.class, () -> table.solve(BOARD));
+    }
+
+    @Test
+    void sharedTableIsKeptInCacheDirectory() {
+        assertEquals(4, new Solver(BOARD, Solver.Algorithm.DISTANCE_TABLE).moves());
+        assertTrue(Files.exists(directory.resolve("distances-3x3.bin")));
+    }
+
+    @Test
+    void failedSharedLoadIsRetried() {
+        // an interrupt closes the channels the first load writes through
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(UncheckedIOException.class, DistanceTable::shared);
+        }
+        finally {
+            Thread.interrupted();
+        }
+        assertEquals(4, DistanceTable.shared().distance(BOARD));
+    }
+
+    @Test
+    void defaultSolverLeavesCacheDirectoryAlone() {
+        assertEquals(4, new Solver(BOARD).moves());
+        assertFalse(Files.exists(directory.resolve("distances-3x3.bin")));
+    }
+}
@@ -0,0 +1,56 @@
+/* *****************************************************************************
+ * Tests of IDA* through Solver.
+ *
+ **************************************************************************** */
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IdaStarTest {
+
+    // admissible, but no help: the search bound starts at 0 and the root is
+    // expanded at depth == bound
+    private static final class ZeroHeuristic implements Heuristic {
+        private final int n;
+
+        ZeroHeuristic(int n) {
+            this.n = n;
+        }
+
+        public int dimension() {
+            return n;
+        }
+
+        public int evaluate(int[] tiles) {
+            return 0;
+        }
+
+        public int update(int[] tiles, int value, int tile, int from, int to) {
+            return 0;
+        }
+    }
+
+    @Test
+    void zeroHeuristicFindsShortestSolution() {
+        Board board = new Board(new int[][] { { 0, 1, 3 }, { 4, 2, 5 }, { 7, 8, 6 } });
+        Solver solver = new Solver(board, Solver.Algorithm.IDA_STAR, new ZeroHeuristic(3));
+        assertEquals(4, solver.moves());
+        assertEquals("RDRD", solver.moveSequence());
+    }
+
+    @Test
+    void zeroHeuristicSolvesGoal() {
+        Board goal = new Board(new int[][] { { 1, 2, 3 }, { 4, 5, 6 }, { 7, 8, 0 } });
+        Solver solver = new Solver(goal, Solver.Algorithm.IDA_STAR, new ZeroHeuristic(3));
+        assertEquals(0, solver.moves());
+    }
+
+    @Test
+    void matchesAStar() {
+        Board board = new Board(new int[][] { { 8, 1, 3 }, { 4, 0, 2 }, { 7, 6, 5 } });
+        Solver ida = new Solver(board, Solver.Algorithm.IDA_STAR, new ZeroHeuristic(3));
+        Solver aStar = new Solver(board, Solver.Algorithm.A_STAR);
+        assertEquals(aStar.moves(), ida.moves());
+    }
+}
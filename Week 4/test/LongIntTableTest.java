@@ -0,0 +1,99 @@
+/* *****************************************************************************
+ * Tests of LongIntTable, and of the A* closed set built on it.
+ *
+ **************************************************************************** */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongIntTableTest {
+
+    @Test
+    void matchesHashMap() {
+        LongIntTable table = new LongIntTable();
+        Map<Long, Integer> map = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 200_000; i++) {
+            // few distinct keys, so that most operations hit one already there
+            long key = random.nextInt(50_000) * 0x9E3779B97F4A7C15L;
+            int value = random.nextInt(100);
+            if (random.nextBoolean()) {
+                table.put(key, value);
+                map.put(key, value);
+            }
+            else {
+                Integer old = map.get(key);
+                boolean changed = old == null || value < old;
+                assertEquals(changed, table.offer(key, value));
+                if (changed) map.put(key, value);
+            }
+        }
+        assertEquals(map.size(), table.size());
+        for (Map.Entry<Long, Integer> entry : map.entrySet()) {
+            assertEquals((int) entry.getValue(), table.get(entry.getKey()));
+        }
+        assertEquals(-1, table.get(1));
+    }
+
+    @Test
+    void clearKeepsNothing() {
+        LongIntTable table = new LongIntTable();
+        for (long key = 0; key < 5000; key++) {
+            table.put(key, 7);
+        }
+        table.clear();
+        assertEquals(0, table.size());
+        assertEquals(-1, table.get(42));
+        assertTrue(table.offer(42, 3));
+        assertFalse(table.offer(42, 3));
+        assertEquals(3, table.get(42));
+    }
+
+    @Test
+    void rejectsNegativeValues() {
+        LongIntTable table = new LongIntTable();
+        assertThrows(IllegalArgumentException.class, () -> table.offer(1, -1));
+    }
+
+    // A* with its closed set finds the fewest moves, found for every 3x3
+    // board by breadth-first search back from the goal
+    @Test
+    void aStarMatchesBreadthFirstSearch() {
+        Map<Long, Integer> distances = new HashMap<>();
+        Board goal = Board.goal(3);
+        distances.put(goal.key(), 0);
+        Queue<Board> queue = new ArrayDeque<>();
+        queue.add(goal);
+        while (!queue.isEmpty()) {
+            Board board = queue.remove();
+            int moves = distances.get(board.key()) + 1;
+            for (Board neighbor : board.neighbors()) {
+                if (distances.putIfAbsent(neighbor.key(), moves) == null) queue.add(neighbor);
+            }
+        }
+        assertEquals(181_440, distances.size());
+
+        SplittableRandom random = new SplittableRandom(4);
+        Board board = goal;
+        for (int i = 0; i < 300; i++) {
+            for (int step = 0; step < 40; step++) {
+                int direction = random.nextInt(4);
+                if (Board.target(board.blankIndex(), direction, 3) >= 0) {
+                    board = board.move(direction);
+                }
+            }
+            int expected = distances.get(board.key());
+            assertEquals(expected, new Solver(board).moves());
+        }
+    }
+}
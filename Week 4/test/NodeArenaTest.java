@@ -0,0 +1,92 @@
+/* *****************************************************************************
+ * Tests of NodeArena's storage and its reuse between searches.
+ *
+ **************************************************************************** */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NodeArenaTest {
+
+    // store a random walk of the given length from the goal as a chain of
+    // children, spanning several chunks, and read every node back
+    private static void walk(NodeArena arena, int width, int length, long seed) {
+        arena.reset(width);
+        Board board = Board.goal(width);
+        Board[] boards = new Board[length + 1];
+        byte[] directions = new byte[length];
+        boards[0] = board;
+        int node = arena.addRoot(board, 7);
+
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] tiles = new int[width * width];
+        for (int i = 0; i < length; i++) {
+            int direction;
+            int target;
+            do {
+                direction = random.nextInt(4);
+                target = Board.target(board.blankIndex(), direction, width);
+            } while (target < 0);
+            int tile = board.tileAt(target);
+            long key = Board.moveKey(board.key(), width, tile, target, board.blankIndex());
+            node = arena.addChild(node, key, tile, target, board.blankIndex(), i + 1, i, direction);
+            board = board.move(direction);
+            boards[i + 1] = board;
+            directions[i] = (byte) direction;
+        }
+        assertEquals(length + 1, arena.size());
+
+        for (int i = 0; i <= length; i++) {
+            assertEquals(boards[i].key(), arena.key(i));
+            assertEquals(i, arena.moves(i));
+            assertEquals(i == 0 ? 7 : i - 1, arena.estimate(i));
+            assertEquals(i - 1, arena.parent(i));
+            assertEquals(boards[i].blankIndex(), arena.load(i, tiles));
+            for (int cell = 0; cell < tiles.length; cell++) {
+                assertEquals(boards[i].tileAt(cell), tiles[cell]);
+            }
+        }
+        assertArrayEquals(directions, arena.path(length));
+    }
+
+    @Test
+    void storesNodesOfEveryWidth() {
+        NodeArena arena = new NodeArena();
+        // packed keys, one byte and two bytes per tile, and back again on
+        // the same arena
+        walk(arena, 4, 40_000, 1);
+        walk(arena, 5, 40_000, 2);
+        walk(arena, 17, 20_000, 3);
+        walk(arena, 3, 40_000, 4);
+        walk(arena, 5, 40_000, 5);
+    }
+
+    // an engine that has run other searches, of other widths, finds the
+    // same solutions as a fresh one
+    @Test
+    void reusedSearchMatchesFreshSearch() {
+        Board[] boards = {
+                new Board(new int[][] {
+                        { 1, 3, 8, 4 }, { 2, 7, 9, 15 }, { 0, 5, 10, 12 }, { 13, 6, 11, 14 }
+                }),
+                new Board(new int[][] { { 8, 1, 3 }, { 4, 0, 2 }, { 7, 6, 5 } }),
+                new Board(new int[][] {
+                        { 1, 2, 3, 4, 5 }, { 6, 7, 8, 9, 10 }, { 11, 12, 0, 14, 15 },
+                        { 16, 17, 13, 18, 20 }, { 21, 22, 23, 19, 24 }
+                }),
+                new Board(new int[][] { { 0, 1, 3 }, { 4, 2, 5 }, { 7, 8, 6 } }),
+        };
+        AStar reused = new AStar();
+        for (int round = 0; round < 2; round++) {
+            for (Board board : boards) {
+                ManhattanHeuristic heuristic = new ManhattanHeuristic(board.dimension());
+                byte[] fresh = new AStar().solve(board, heuristic);
+                assertArrayEquals(fresh, reused.solve(board, heuristic));
+            }
+        }
+    }
+}
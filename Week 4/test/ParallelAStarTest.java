@@ -0,0 +1,66 @@
+/* *****************************************************************************
+ * Tests of hash-distributed parallel A* against A*.
+ *
+ **************************************************************************** */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelAStarTest {
+
+    // board reached from the goal by steps random blank moves
+    private static Board scramble(int width, int steps, SplittableRandom random) {
+        Board board = Board.goal(width);
+        for (int step = 0; step < steps; step++) {
+            int direction = random.nextInt(4);
+            if (Board.target(board.blankIndex(), direction, width) >= 0) {
+                board = board.move(direction);
+            }
+        }
+        return board;
+    }
+
+    // solve count random boards with every number of threads, checking
+    // that each path reaches the goal in as many moves as A* takes
+    private static void compare(int width, int steps, int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        ManhattanHeuristic heuristic = new ManhattanHeuristic(width);
+        for (int i = 0; i < count; i++) {
+            Board board = scramble(width, steps, random);
+            int optimal = new AStar().solve(board, heuristic).length;
+            for (int threads = 1; threads <= 4; threads++) {
+                byte[] path = new ParallelAStar(threads).solve(board, heuristic);
+                assertEquals(optimal, path.length, board + " with " + threads + " threads");
+                Board end = board;
+                for (byte direction : path) {
+                    end = end.move(direction);
+                }
+                assertTrue(end.isGoal());
+            }
+        }
+    }
+
+    @Test
+    void matchesAStar3x3() {
+        compare(3, 100, 50, 11);
+    }
+
+    @Test
+    void matchesAStar4x4() {
+        compare(4, 60, 15, 12);
+    }
+
+    @Test
+    void matchesAStar5x5() {
+        compare(5, 30, 10, 13);
+    }
+
+    @Test
+    void solvesGoal() {
+        assertEquals(0, new ParallelAStar(3).solve(Board.goal(4), new ManhattanHeuristic(4)).length);
+    }
+}
@@ -0,0 +1,73 @@
+/* *****************************************************************************
+ * Tests of the pattern database heuristic's incremental update.
+ *
+ **************************************************************************** */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PatternDatabaseTest {
+
+    @TempDir
+    Path directory;
+
+    // slide the blank at random from the goal, checking after every move
+    // that the updated value is the value of the board
+    private static void walk(PatternDatabase database, int width, int steps, long seed) {
+        ManhattanHeuristic manhattan = new ManhattanHeuristic(width);
+        int[] tiles = new int[width * width];
+        for (int i = 0; i < tiles.length - 1; i++) {
+            tiles[i] = i + 1;
+        }
+        int blank = tiles.length - 1;
+        int value = database.evaluate(tiles);
+        assertEquals(0, database.estimate(value));
+
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int step = 0; step < steps; step++) {
+            int target = Board.target(blank, random.nextInt(4), width);
+            if (target < 0) continue;
+            int tile = tiles[target];
+            tiles[blank] = tile;
+            tiles[target] = 0;
+            value = database.update(tiles, value, tile, target, blank);
+            blank = target;
+
+            assertEquals(database.evaluate(tiles), value);
+            assertTrue(database.estimate(value) >= manhattan.evaluate(tiles));
+        }
+    }
+
+    @Test
+    void packedUpdateMatchesEvaluate3x3() {
+        walk(PatternDatabase.open(3, new int[][] { { 1, 2, 3, 4 }, { 5, 6, 7, 8 } },
+                                  directory.resolve("pdb3.bin")), 3, 20000, 1);
+    }
+
+    @Test
+    void summedUpdateMatchesEvaluate4x4() {
+        int[][] patterns = { { 1, 2, 3, 4 }, { 5, 6, 7, 8 }, { 9, 10, 11, 12 }, { 13, 14, 15 } };
+        walk(PatternDatabase.open(4, patterns, directory.resolve("pdb4.bin")), 4, 20000, 2);
+    }
+
+    @Test
+    void everySearchFindsShortestSolution() {
+        Board board = new Board(new int[][] { { 8, 6, 7 }, { 2, 0, 4 }, { 3, 5, 1 } });
+        PatternDatabase database = PatternDatabase.open(
+                3, new int[][] { { 1, 2, 3, 4 }, { 5, 6, 7, 8 } }, directory.resolve("pdb3.bin"));
+        int optimal = new Solver(board, Solver.Algorithm.A_STAR).moves();
+        for (Solver.Algorithm algorithm : new Solver.Algorithm[] {
+                Solver.Algorithm.A_STAR, Solver.Algorithm.IDA_STAR,
+                Solver.Algorithm.PARALLEL_A_STAR, Solver.Algorithm.BIDIRECTIONAL }) {
+            assertEquals(optimal, new Solver(board, algorithm, database).moves(), algorithm.name());
+        }
+        assertEquals(optimal, new Solver(board, database, 10_000, 1_000_000).moves());
+        assertTrue(database.distance(board) <= optimal);
+    }
+}
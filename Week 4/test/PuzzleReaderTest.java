@@ -0,0 +1,159 @@
+/* *****************************************************************************
+ * Tests of PuzzleReader's formats and their checks.
+ *
+ **************************************************************************** */
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PuzzleReaderTest {
+
+    private static PuzzleReader reader(byte[] input) {
+        return new PuzzleReader(Channels.newChannel(new ByteArrayInputStream(input)));
+    }
+
+    private static PuzzleReader reader(String input) {
+        return reader(input.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    // input that arrives a few bytes per read, so that records and
+    // numbers straddle the reader's refills
+    private static ReadableByteChannel trickle(byte[] input) {
+        ByteBuffer source = ByteBuffer.wrap(input);
+        return new ReadableByteChannel() {
+            public int read(ByteBuffer target) {
+                if (!source.hasRemaining()) return -1;
+                int count = Math.min(Math.min(7, source.remaining()), target.remaining());
+                for (int i = 0; i < count; i++) {
+                    target.put(source.get());
+                }
+                return count;
+            }
+
+            public boolean isOpen() {
+                return true;
+            }
+
+            public void close() { }
+        };
+    }
+
+    private static String failure(PuzzleReader reader) {
+        return assertThrows(IllegalArgumentException.class, reader::hasNext).getMessage();
+    }
+
+    @Test
+    void readsTextAndBinary() {
+        Board board = new Board(new int[][] { { 0, 1, 3 }, { 4, 2, 5 }, { 7, 8, 6 } });
+        PuzzleReader text = reader("3\n0 1 3\n4 2 5\n7 8 6\n3 1 2 3 4 5 6 7 8 0\n");
+        assertEquals(board, text.next());
+        assertTrue(text.hasNext());
+        text.next();
+        assertFalse(text.hasNext());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PuzzleReader.writeBinary(List.of(board, board), Channels.newChannel(out));
+        PuzzleReader binary = reader(out.toByteArray());
+        assertTrue(binary.isBinary());
+        assertEquals(board, binary.next());
+        assertEquals(board, binary.next());
+        assertFalse(binary.hasNext());
+    }
+
+    @Test
+    void rejectsRepeatedTextTile() {
+        // the second 1 ends before byte 11
+        assertEquals("tile 1 repeated at byte 11", failure(reader("3\n0 1 3\n4 1 5\n7 8 6\n")));
+    }
+
+    @Test
+    void rejectsRepeatedBinaryTile() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Board board = new Board(new int[][] { { 0, 1 }, { 2, 3 } });
+        PuzzleReader.writeBinary(List.of(board), Channels.newChannel(out));
+        byte[] bytes = out.toByteArray();
+        // 2 bits a tile, 0 1 2 3 is 0b11_10_01_00; make the last tile 2
+        assertEquals((byte) 0xE4, bytes[5]);
+        bytes[5] = (byte) 0xA4;
+        assertTrue(failure(reader(bytes)).startsWith("tile 2 repeated at byte"));
+    }
+
+    @Test
+    void repeatsDoNotCarryToTheNextBoard() {
+        PuzzleReader reader = reader("2 0 1 2 3\n2 3 2 1 0\n2 1 1 2 3\n");
+        reader.next();
+        reader.next();
+        assertTrue(failure(reader).startsWith("tile 1 repeated"));
+    }
+
+    // Boards of many widths, tiles from 1 to 9 bits wide, written as text
+    // and in binary, enough of them to fill the reader's buffer several
+    // times; both read back the same boards.
+    @Test
+    void roundTripsManyBoards() {
+        SplittableRandom random = new SplittableRandom(19);
+        List<Board> boards = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        int[] widths = { 2, 3, 4, 5, 8, 16, 17 };
+        for (int i = 0; i < 30_000; i++) {
+            int width = i < 29_000 ? 3 + i % 2 : widths[random.nextInt(widths.length)];
+            Board board = Board.goal(width);
+            for (int step = 0; step < 50; step++) {
+                int direction = random.nextInt(4);
+                if (Board.target(board.blankIndex(), direction, width) >= 0) {
+                    board = board.move(direction);
+                }
+            }
+            boards.add(board);
+            text.append(board);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(boards.size(), PuzzleReader.writeBinary(boards, Channels.newChannel(out)));
+        byte[] binary = out.toByteArray();
+        // a record is the width byte and the tiles' bits rounded up to a byte
+        long size = Integer.BYTES;
+        for (Board board : boards) {
+            int n = board.dimension();
+            int bits = 32 - Integer.numberOfLeadingZeros(n * n - 1);
+            size += 1 + (n * n * bits + 7) / 8;
+        }
+        assertEquals(size, binary.length);
+
+        for (boolean isBinary : new boolean[] { false, true }) {
+            byte[] input = isBinary ? binary : text.toString().getBytes(StandardCharsets.US_ASCII);
+            PuzzleReader reader = new PuzzleReader(trickle(input));
+            assertEquals(isBinary, reader.isBinary());
+            for (Board board : boards) {
+                assertTrue(reader.hasNext());
+                assertEquals(board, reader.next());
+            }
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    @Test
+    void readsEmptyInput() {
+        assertFalse(reader("").hasNext());
+        assertFalse(reader(" \n").hasNext());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(0, PuzzleReader.writeBinary(List.of(), Channels.newChannel(out)));
+        PuzzleReader binary = reader(out.toByteArray());
+        assertTrue(binary.isBinary());
+        assertFalse(binary.hasNext());
+    }
+}
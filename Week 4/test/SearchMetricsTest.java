@@ -0,0 +1,121 @@
+/* *****************************************************************************
+ * Tests of the search metrics that Solver reports.
+ *
+ **************************************************************************** */
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchMetricsTest {
+
+    // 32 moves, as in SolverTest
+    private static final Board BOARD = new Board(new int[][] {
+            { 1, 3, 8, 4 }, { 2, 7, 9, 15 }, { 0, 5, 10, 12 }, { 13, 6, 11, 14 }
+    });
+
+    // Manhattan distance, counting its calls
+    private static final class CountingHeuristic implements Heuristic {
+        private final ManhattanHeuristic manhattan = new ManhattanHeuristic(4);
+        private long calls;
+
+        public int dimension() {
+            return 4;
+        }
+
+        public int evaluate(int[] tiles) {
+            calls++;
+            return manhattan.evaluate(tiles);
+        }
+
+        public int update(int[] tiles, int value, int tile, int from, int to) {
+            calls++;
+            return manhattan.update(tiles, value, tile, from, to);
+        }
+    }
+
+    @Test
+    void everySearchCountsItsWork() {
+        for (Solver.Algorithm algorithm : new Solver.Algorithm[] {
+                Solver.Algorithm.A_STAR, Solver.Algorithm.IDA_STAR,
+                Solver.Algorithm.PARALLEL_A_STAR, Solver.Algorithm.BIDIRECTIONAL }) {
+            CountingHeuristic heuristic = new CountingHeuristic();
+            Solver solver = new Solver(BOARD, algorithm, heuristic);
+            SearchMetrics metrics = solver.metrics();
+            String name = algorithm.name();
+
+            assertEquals(metrics.expanded(), solver.nodesExpanded(), name);
+            assertTrue(metrics.expanded() >= solver.moves(), name);
+            assertTrue(metrics.generated() >= metrics.expanded(), name);
+            assertTrue(metrics.duplicates() >= 0, name);
+            assertTrue(metrics.peakFrontier() > 0, name);
+            assertTrue(metrics.elapsedNanos() > 0, name);
+            // every generated board was estimated, and only the roots besides;
+            // the backward side of a bidirectional search estimates its
+            // boards with its own heuristic
+            if (algorithm != Solver.Algorithm.BIDIRECTIONAL) {
+                assertTrue(heuristic.calls >= metrics.generated(), name);
+            }
+            assertTrue(heuristic.calls > 0, name);
+            assertTrue(heuristic.calls <= metrics.generated() + 2, name);
+            if (algorithm != Solver.Algorithm.IDA_STAR) {
+                assertTrue(metrics.footprint() > 0, name);
+            }
+            // timing is off unless puzzle.metrics.timing is set
+            assertEquals(0, metrics.heuristicCalls(), name);
+            assertEquals(0, metrics.heuristicNanos(), name);
+        }
+    }
+
+    @Test
+    void aStarEstimatesEachGeneratedBoardOnce() {
+        CountingHeuristic heuristic = new CountingHeuristic();
+        SearchMetrics metrics = new Solver(BOARD, Solver.Algorithm.A_STAR, heuristic).metrics();
+        assertEquals(metrics.generated() + 1, heuristic.calls);
+        assertTrue(metrics.expanded() <= metrics.generated() + 1);
+    }
+
+    // Solver hands out a copy, which later searches on the same thread
+    // leave alone
+    @Test
+    void metricsOutliveNextSearch() {
+        Solver first = new Solver(BOARD);
+        String before = first.metrics().toString();
+        new Solver(Board.goal(4));
+        assertEquals(before, first.metrics().toString());
+        assertEquals(0, new Solver(Board.goal(3).twin()).metrics().expanded());
+    }
+
+    @Test
+    void timedHeuristicReportsCalls() {
+        CountingHeuristic counting = new CountingHeuristic();
+        TimedHeuristic timed = new TimedHeuristic(counting);
+        new AStar().solve(BOARD, timed);
+        SearchMetrics metrics = new SearchMetrics();
+        timed.report(metrics);
+        assertEquals(counting.calls, metrics.heuristicCalls());
+        assertTrue(metrics.heuristicNanos() > 0);
+    }
+
+    @Test
+    void addSumsCountsAndCopyKeepsElapsed() {
+        SearchMetrics a = new SearchMetrics();
+        a.expanded = 3;
+        a.generated = 5;
+        a.duplicates = 1;
+        a.frontier(4);
+        a.frontier(2);
+        a.elapsedNanos = 9;
+        SearchMetrics b = a.copy();
+        b.add(a);
+        assertEquals(6, b.expanded());
+        assertEquals(10, b.generated());
+        assertEquals(2, b.duplicates());
+        assertEquals(8, b.peakFrontier());
+        assertEquals(9, b.elapsedNanos());
+        b.reset();
+        assertEquals(0, b.expanded());
+        assertEquals(3, a.expanded());
+    }
+}
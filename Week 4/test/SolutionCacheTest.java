@@ -0,0 +1,54 @@
+/* *****************************************************************************
+ * Tests of SolutionCache.
+ *
+ **************************************************************************** */
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SolutionCacheTest {
+
+    // 26 moves
+    private static final Board BOARD = new Board(new int[][] {
+            { 8, 6, 7 }, { 2, 0, 4 }, { 3, 5, 1 }
+    });
+
+    @Test
+    void smallCacheKeepsTheBoardItSolved() {
+        SolutionCache cache = new SolutionCache(5);
+        Solver first = cache.solve(BOARD);
+        Solver second = cache.solve(BOARD);
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+        assertEquals(5, cache.size());
+        assertEquals(first.moves(), second.moves());
+        assertEquals(first.moveSequence(), second.moveSequence());
+    }
+
+    @Test
+    void cachedSuffixesSolveLaterBoards() {
+        SolutionCache cache = new SolutionCache(1000);
+        Solver solver = cache.solve(BOARD);
+        assertEquals(solver.moves() + 1, cache.size());
+        int moves = solver.moves();
+        for (Board board : solver.solution()) {
+            assertEquals(moves--, cache.solve(board).moves());
+        }
+        assertEquals(solver.moves() + 1, cache.hits());
+    }
+
+    @Test
+    void transposeIsAHit() {
+        SolutionCache cache = new SolutionCache(1);
+        Solver solver = cache.solve(BOARD);
+        Solver transposed = cache.solve(BOARD.transpose());
+        assertEquals(1, cache.hits());
+        assertEquals(solver.moves(), transposed.moves());
+        Board last = null;
+        for (Board board : transposed.solution()) {
+            last = board;
+        }
+        assertEquals(true, last.isGoal());
+    }
+}
@@ -0,0 +1,75 @@
+/* *****************************************************************************
+ * Tests of Solver's constructors and the solutions they replay.
+ *
+ **************************************************************************** */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SolverTest {
+
+    // 32 moves; anytime search expands thousands of boards, so it checks
+    // its deadline before proving the solution optimal
+    private static final Board BOARD = new Board(new int[][] {
+            { 1, 3, 8, 4 }, { 2, 7, 9, 15 }, { 0, 5, 10, 12 }, { 13, 6, 11, 14 }
+    });
+
+    @Test
+    void anytimeWithoutTimeLimitFindsShortestSolution() {
+        int optimal = new Solver(BOARD, Solver.Algorithm.A_STAR).moves();
+        for (long millis : new long[] { Long.MAX_VALUE, Long.MAX_VALUE / 1_000_000 }) {
+            Solver solver = new Solver(BOARD, new LinearConflictHeuristic(4), millis, Long.MAX_VALUE);
+            assertTrue(solver.isOptimal());
+            assertEquals(optimal, solver.moves());
+        }
+    }
+
+    // the replayed boards start at the initial board and end at the goal,
+    // each one blank move, the one moveSequence() names, after the last
+    private static void checkSolution(Board initial, Solver solver) {
+        String sequence = solver.moveSequence();
+        assertEquals(solver.moves(), sequence.length());
+        for (int pass = 0; pass < 2; pass++) {
+            Iterator<Board> boards = solver.solution().iterator();
+            Board board = boards.next();
+            assertEquals(initial, board);
+            for (int i = 0; i < sequence.length(); i++) {
+                Board next = boards.next();
+                assertEquals(board.move("LRUD".indexOf(sequence.charAt(i))), next);
+                board = next;
+            }
+            assertTrue(board.isGoal());
+            assertFalse(boards.hasNext());
+            assertThrows(NoSuchElementException.class, boards::next);
+        }
+    }
+
+    @Test
+    void solutionReplaysMoveSequence() {
+        for (Solver.Algorithm algorithm : new Solver.Algorithm[] {
+                Solver.Algorithm.A_STAR, Solver.Algorithm.IDA_STAR,
+                Solver.Algorithm.PARALLEL_A_STAR, Solver.Algorithm.BIDIRECTIONAL }) {
+            checkSolution(BOARD, new Solver(BOARD, algorithm));
+        }
+        checkSolution(BOARD, new Solver(BOARD, new LinearConflictHeuristic(4), 10_000, 1_000_000));
+        Board goal = Board.goal(3);
+        checkSolution(goal, new Solver(goal));
+    }
+
+    @Test
+    void unsolvableBoardHasNoSolution() {
+        Solver solver = new Solver(Board.goal(3).twin());
+        assertFalse(solver.isSolvable());
+        assertEquals(-1, solver.moves());
+        assertNull(solver.solution());
+        assertNull(solver.moveSequence());
+    }
+}
@@ -0,0 +1,68 @@
+/* *****************************************************************************
+ * Tests of the walking distance heuristic's incremental update.
+ *
+ **************************************************************************** */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WalkingDistanceHeuristicTest {
+
+    // slide the blank at random from the goal, checking after every move
+    // that the updated value is the value of the board
+    private static void walk(int width, int steps, long seed) {
+        WalkingDistanceHeuristic heuristic = new WalkingDistanceHeuristic(width);
+        ManhattanHeuristic manhattan = new ManhattanHeuristic(width);
+        int[] tiles = new int[width * width];
+        for (int i = 0; i < tiles.length - 1; i++) {
+            tiles[i] = i + 1;
+        }
+        int blank = tiles.length - 1;
+        int value = heuristic.evaluate(tiles);
+        assertEquals(0, heuristic.estimate(value));
+
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int step = 0; step < steps; step++) {
+            int target = Board.target(blank, random.nextInt(4), width);
+            if (target < 0) continue;
+            int tile = tiles[target];
+            tiles[blank] = tile;
+            tiles[target] = 0;
+            value = heuristic.update(tiles, value, tile, target, blank);
+            blank = target;
+
+            assertEquals(heuristic.evaluate(tiles), value);
+            assertTrue(heuristic.estimate(value) >= manhattan.evaluate(tiles));
+        }
+    }
+
+    @Test
+    void updateMatchesEvaluate3x3() {
+        walk(3, 20000, 1);
+    }
+
+    @Test
+    void updateMatchesEvaluate4x4() {
+        walk(4, 20000, 2);
+    }
+
+    @Test
+    void everySearchFindsShortestSolution() {
+        Board board = new Board(new int[][] {
+                { 5, 1, 3, 4 }, { 9, 2, 7, 8 }, { 0, 6, 11, 12 }, { 13, 10, 14, 15 }
+        });
+        int optimal = new Solver(board, Solver.Algorithm.A_STAR).moves();
+        for (Solver.Algorithm algorithm : new Solver.Algorithm[] {
+                Solver.Algorithm.A_STAR, Solver.Algorithm.IDA_STAR,
+                Solver.Algorithm.PARALLEL_A_STAR, Solver.Algorithm.BIDIRECTIONAL }) {
+            Solver solver = new Solver(board, algorithm, new WalkingDistanceHeuristic(4));
+            assertEquals(optimal, solver.moves(), algorithm.name());
+        }
+        Solver anytime = new Solver(board, new WalkingDistanceHeuristic(4), 10_000, 1_000_000);
+        assertEquals(optimal, anytime.moves());
+    }
+}
@@ -0,0 +1,374 @@
+/* *****************************************************************************
+ *  Compilation: javac-algs4 ConcurrentKdTree.java
+ *  Execution: java-algs4 ConcurrentKdTree < input10.txt
+ *
+ *  Description: A 2d-tree of points in the unit square that any number of
+ *  threads may query and insert into at once, with KdTree's insert,
+ *  contains, range and nearest. Queries never block or retry. Nodes are
+ *  immutable: an insert copies the path from the root to the new leaf,
+ *  sharing every other node with the old tree, and publishes the new root
+ *  with a compare-and-set on an atomic reference. A query reads that
+ *  reference once and searches the tree it names, a consistent snapshot
+ *  that later inserts cannot change, so readers take no locks and scale
+ *  with their threads.
+ *
+ *  Concurrent inserts are lock-free: an insert whose compare-and-set
+ *  fails, because another insert published first, copies its path again
+ *  from the new root. Each insert allocates depth + 1 nodes, besides any
+ *  rebuild (below).
+ *
+ *  The published tree stays balanced as a scapegoat tree does, so that
+ *  sorted or clustered inserts cannot make a path: each node keeps the
+ *  size of its subtree, and an insert that would land deeper than log
+ *  base 1/ALPHA of the tree's size rebuilds, balanced, the subtree of the
+ *  lowest ancestor on its path one of whose children would hold more
+ *  than ALPHA of its nodes. The rebuilt subtree goes into the copy, so
+ *  readers of older snapshots are not disturbed, and its cost, O(m log m)
+ *  for m points, is paid for by the inserts that unbalanced it.
+ *  Distinct points sharing a coordinate are ordered by their other one,
+ *  so that a rebuild can divide between any two points.
+ **************************************************************************** */
+
+import edu.princeton.cs.algs4.Point2D;
+import edu.princeton.cs.algs4.Queue;
+import edu.princeton.cs.algs4.RectHV;
+import edu.princeton.cs.algs4.StdIn;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ConcurrentKdTree {
+
+    private static final boolean VERTICAL = true;
+    private static final boolean HORIZONTAL = false;
+    // most of a subtree's nodes a child may hold before the subtree is
+    // rebuilt, if an insert finds the tree too deep
+    private static final double ALPHA = 2.0 / 3.0;
+    private static final double LOG_INVERSE_ALPHA = Math.log(1 / ALPHA);
+
+    // the plane's bounds, the rectangle of the root
+    private static final double XMIN = 0, YMIN = 0, XMAX = 1, YMAX = 1;
+
+    // the current tree and its size, replaced together
+    private final AtomicReference<Snapshot> current =
+            new AtomicReference<>(new Snapshot(null, 0));
+
+
+    private static final class Snapshot {
+        private final Node root;
+        private final int n;
+
+        Snapshot(Node root, int n) {
+            this.root = root;
+            this.n = n;
+        }
+    }
+
+    private static final class Node {
+        private final Point2D point;
+        private final Node left, right;
+        private final int size;   // nodes in this subtree
+
+        Node(Point2D point, Node left, Node right) {
+            this.point = point;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + size(left) + size(right);
+        }
+    }
+
+    private static int size(Node x) {
+        return x == null ? 0 : x.size;
+    }
+
+    // construct an empty set of points
+    public ConcurrentKdTree() {
+    }
+
+    // is the set empty?
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // number of points in the set
+    public int size() {
+        return current.get().n;
+    }
+
+    // add the point to the set (if it is not already in the set)
+    public void insert(Point2D p) {
+        if (p == null) throw new IllegalArgumentException();
+        while (true) {
+            Snapshot snapshot = current.get();
+            Node root = insert(snapshot.root, p);
+            if (root == null) return;   // already in the set
+            if (current.compareAndSet(snapshot, new Snapshot(root, snapshot.n + 1))) return;
+        }
+    }
+
+    // A copy of the tree at root with p added, or null if p is in it. The
+    // path down to p's place is found first, then copied from the bottom
+    // up, with the scapegoat's subtree rebuilt if p would land too deep.
+    private static Node insert(Node root, Point2D p) {
+        Node[] path = new Node[16];
+        int depth = 0;
+        boolean division = VERTICAL;
+        for (Node x = root; x != null; division = !division) {
+            if (x.point.equals(p)) return null;
+            if (depth == path.length) path = Arrays.copyOf(path, 2 * depth);
+            path[depth++] = x;
+            x = less(p, x.point, division) ? x.left : x.right;
+        }
+
+        // Were no child on the path to hold more than ALPHA of its
+        // parent's nodes, the root would have more than 1 / ALPHA^depth
+        // of them, so a tree too deep for its size has such a child.
+        int scapegoat = -1;
+        if (depth > Math.log(size(root) + 1) / LOG_INVERSE_ALPHA) {
+            int below = 1;   // nodes the child on the path would hold
+            for (int i = depth - 1; i >= 0; i--) {
+                int total = path[i].size + 1;
+                if (below > ALPHA * total) {
+                    scapegoat = i;
+                    break;
+                }
+                below = total;
+            }
+        }
+
+        Node copy;
+        int i;
+        if (scapegoat < 0) {
+            copy = new Node(p, null, null);
+            i = depth - 1;
+        }
+        else {
+            Point2D[] points = new Point2D[path[scapegoat].size + 1];
+            points[gather(path[scapegoat], points, 0)] = p;
+            copy = build(points, 0, points.length, scapegoat % 2 == 0 ? VERTICAL : HORIZONTAL);
+            i = scapegoat - 1;
+        }
+        for (; i >= 0; i--) {
+            Node x = path[i];
+            copy = less(p, x.point, i % 2 == 0 ? VERTICAL : HORIZONTAL)
+                   ? new Node(x.point, copy, x.right)
+                   : new Node(x.point, x.left, copy);
+        }
+        return copy;
+    }
+
+    // Does p come before q along the division's axis? Ties on it are
+    // broken by the other coordinate, so that distinct points are never
+    // equal. A subtree's points still lie on its side of the division or
+    // on the division itself, which is all range() and nearest() assume.
+    private static boolean less(Point2D p, Point2D q, boolean division) {
+        if (division == VERTICAL) return p.x() < q.x() || p.x() == q.x() && p.y() < q.y();
+        else return p.y() < q.y() || p.y() == q.y() && p.x() < q.x();
+    }
+
+    // copy the points of the subtree at x to points[] from next on, and
+    // return the next free index
+    private static int gather(Node x, Point2D[] points, int next) {
+        if (x == null) return next;
+        points[next++] = x.point;
+        next = gather(x.left, points, next);
+        return gather(x.right, points, next);
+    }
+
+    // the balanced subtree of points[lo, hi), each node the median of its
+    // points along its level's axis
+    private static Node build(Point2D[] points, int lo, int hi, boolean division) {
+        if (lo >= hi) return null;
+        int mid = lo + (hi - lo) / 2;
+        select(points, lo, hi, mid, division);
+        return new Node(points[mid], build(points, lo, mid, !division),
+                        build(points, mid + 1, hi, !division));
+    }
+
+    // Rearrange points[lo, hi) by quickselect so that points[k] is the
+    // point of that rank along the axis, with the points before it less
+    // and those after it not.
+    private static void select(Point2D[] points, int lo, int hi, int k, boolean division) {
+        hi--;
+        while (lo < hi) {
+            swap(points, lo + ThreadLocalRandom.current().nextInt(hi - lo + 1), hi);
+            Point2D pivot = points[hi];
+            int rank = lo;
+            for (int i = lo; i < hi; i++) {
+                if (less(points[i], pivot, division)) swap(points, i, rank++);
+            }
+            swap(points, rank, hi);
+            if (k < rank) hi = rank - 1;
+            else if (k > rank) lo = rank + 1;
+            else return;
+        }
+    }
+
+    private static void swap(Point2D[] points, int i, int j) {
+        Point2D t = points[i];
+        points[i] = points[j];
+        points[j] = t;
+    }
+
+    // levels of the current tree, the most nodes a search visits on one
+    // path
+    int height() {
+        return height(current.get().root);
+    }
+
+    private static int height(Node x) {
+        if (x == null) return 0;
+        return 1 + Math.max(height(x.left), height(x.right));
+    }
+
+    // does the set contain point p?
+    public boolean contains(Point2D p) {
+        if (p == null) throw new IllegalArgumentException();
+        boolean division = VERTICAL;
+        for (Node x = current.get().root; x != null; division = !division) {
+            if (x.point.equals(p)) return true;
+            x = less(p, x.point, division) ? x.left : x.right;
+        }
+        return false;
+    }
+
+    // all points that are inside the rectangle (or on the boundary)
+    public Iterable<Point2D> range(RectHV rect) {
+        if (rect == null) throw new IllegalArgumentException();
+        Queue<Point2D> ptsInRange = new Queue<>();
+        range(rect, current.get().root, VERTICAL, ptsInRange);
+        return ptsInRange;
+    }
+
+    // the query meets the left side of a vertical division at x exactly
+    // when its xmin <= x, and the right side when its xmax >= x
+    private static void range(RectHV rect, Node x, boolean division, Queue<Point2D> queue) {
+        if (x == null) return;
+
+        if (rect.contains(x.point)) {
+            queue.enqueue(x.point);
+        }
+
+        double split = division == VERTICAL ? x.point.x() : x.point.y();
+        double low = division == VERTICAL ? rect.xmin() : rect.ymin();
+        double high = division == VERTICAL ? rect.xmax() : rect.ymax();
+        if (low <= split) range(rect, x.left, !division, queue);
+        if (high >= split) range(rect, x.right, !division, queue);
+    }
+
+    // a nearest neighbor in the set to point p
+    public Point2D nearest(Point2D p) {
+        if (p == null) throw new IllegalArgumentException();
+        Node root = current.get().root;
+        if (root == null) throw new IllegalArgumentException();
+        Nearest best = new Nearest(root.point, root.point.distanceSquaredTo(p));
+        nearest(p.x(), p.y(), root, VERTICAL, XMIN, YMIN, XMAX, YMAX, best);
+        return best.point;
+    }
+
+    // the closest point found so far and its squared distance to the query
+    private static final class Nearest {
+        Point2D point;
+        double distance;
+
+        Nearest(Point2D point, double distance) {
+            this.point = point;
+            this.distance = distance;
+        }
+    }
+
+    private static void nearest(double px, double py, Node x, boolean division,
+                                double xmin, double ymin, double xmax, double ymax,
+                                Nearest best) {
+        if (x == null) return;
+
+        // nothing in this node's rectangle can beat the best so far
+        double dx = px < xmin ? xmin - px : px > xmax ? px - xmax : 0;
+        double dy = py < ymin ? ymin - py : py > ymax ? py - ymax : 0;
+        if (dx * dx + dy * dy >= best.distance) return;
+
+        double nx = x.point.x(), ny = x.point.y();
+        double distance = (nx - px) * (nx - px) + (ny - py) * (ny - py);
+        if (distance < best.distance) {
+            best.point = x.point;
+            best.distance = distance;
+        }
+
+        // the query's side of the division first
+        if (division == VERTICAL) {
+            if (px < nx) {
+                nearest(px, py, x.left, HORIZONTAL, xmin, ymin, nx, ymax, best);
+                nearest(px, py, x.right, HORIZONTAL, nx, ymin, xmax, ymax, best);
+            }
+            else {
+                nearest(px, py, x.right, HORIZONTAL, nx, ymin, xmax, ymax, best);
+                nearest(px, py, x.left, HORIZONTAL, xmin, ymin, nx, ymax, best);
+            }
+        }
+        else {
+            if (py < ny) {
+                nearest(px, py, x.left, VERTICAL, xmin, ymin, xmax, ny, best);
+                nearest(px, py, x.right, VERTICAL, xmin, ny, xmax, ymax, best);
+            }
+            else {
+                nearest(px, py, x.right, VERTICAL, xmin, ny, xmax, ymax, best);
+                nearest(px, py, x.left, VERTICAL, xmin, ymin, xmax, ny, best);
+            }
+        }
+    }
+
+
+    // unit testing of the methods (optional): the points are inserted
+    // by two threads while a third queries
+    public static void main(String[] args) throws InterruptedException {
+
+        Queue<Point2D> points = new Queue<>();
+        while (!StdIn.isEmpty()) {
+            points.enqueue(new Point2D(StdIn.readDouble(), StdIn.readDouble()));
+        }
+        Point2D[] all = new Point2D[points.size()];
+        int count = 0;
+        for (Point2D point : points) {
+            all[count++] = point;
+        }
+
+        ConcurrentKdTree tree = new ConcurrentKdTree();
+        Thread[] writers = new Thread[2];
+        for (int w = 0; w < writers.length; w++) {
+            int first = w;
+            writers[w] = new Thread(() -> {
+                for (int i = first; i < all.length; i += writers.length) {
+                    tree.insert(all[i]);
+                }
+            });
+            writers[w].start();
+        }
+        Thread reader = new Thread(() -> {
+            while (writers[0].isAlive() || writers[1].isAlive()) {
+                if (!tree.isEmpty()) tree.nearest(new Point2D(0.34, 0.73));
+            }
+        });
+        reader.start();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        reader.join();
+
+        // Test contains
+        Point2D test = new Point2D(0.499, 0.218);
+        System.out.println("Contains point: " + tree.contains(test));
+
+        // Test range
+        for (Point2D i : tree.range(new RectHV(0.2, 0.2, 0.6, 0.6))) {
+            System.out.println("Range Point: " + i);
+        }
+
+        // Test Nearest
+        Point2D nearestPoint = new Point2D(0.34, 0.73);
+        System.out.println("Nearest: " + tree.nearest(nearestPoint));
+
+        System.out.println("Size: " + tree.size());
+
+    }
+}
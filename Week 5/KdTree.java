@@ -3,6 +3,49 @@
  *  Execution: java-algs4 KdTree < input10.txt
  *
  *  Algs-4 Week 5 Programming Assignment
+ *  Description: A 2d-tree of points in the unit square. Besides insert(),
+ *  a tree can be bulk-loaded from an array or stream of points, which
+ *  builds it balanced: each node is the median of its points along its
+ *  level's axis, found by quickselect, with subtrees of more than
+ *  PARALLEL_CUTOFF points built in parallel on the common ForkJoinPool.
+ *  The depth is then about lg n whatever the input order, where repeated
+ *  inserts of sorted or clustered points make a path.
+ *
+ *  The tree keeps that depth under inserts and deletes as a scapegoat
+ *  tree does. A deleted point stays in the tree, marked, to divide the
+ *  plane for the points below it, and an insert revives it. An insert
+ *  that lands deeper than log base 1/ALPHA of the nodes in the tree
+ *  climbs back to the lowest ancestor one of whose children holds more
+ *  than ALPHA of its nodes, and rebuilds that ancestor's subtree balanced
+ *  from its live points. The whole tree is rebuilt once fewer than half
+ *  as many points are left as there were nodes. Either rebuild costs
+ *  O(m log m) for m points, paid for by the updates that unbalanced the
+ *  tree, so updates take O(log^2 n) amortized time and the depth is at
+ *  most log base 1/ALPHA of 2n, plus one. balance() reports both.
+ *  Distinct points sharing a coordinate are ordered by their other one,
+ *  so that a rebuild can divide between any two points.
+ *
+ *  The nodes are not objects. Node i is the point (xs[i], ys[i]) with
+ *  children left[i] and right[i], indices into the same arrays, so a
+ *  point costs 25 bytes with its deleted mark. A node divides vertically
+ *  at even depths and horizontally at odd ones, and its rectangle is
+ *  narrowed from the unit square on the way down rather than stored. A
+ *  bulk-loaded tree is laid out in van Emde Boas order: the top half of
+ *  its levels first, then each subtree below them, each laid out the same
+ *  way, so that a search's path runs through few blocks of the arrays at
+ *  any block size.
+ *  Inserted points, and rebuilt subtrees, are appended; the nodes they
+ *  replace are left behind until the arrays fill, when the tree is
+ *  rebuilt into their front if half of them are unused.
+ *
+ *  nearest(p), the k nearest points and the points within a radius are
+ *  one search, pruned by the distance from the query to each node's
+ *  rectangle: for k points the bound is the k-th nearest distance so
+ *  far, kept at the top of a bounded max-heap; for a radius, the radius.
+ *  Batches of nearest and range queries are answered in parallel into
+ *  the caller's arrays, in Morton order so that queries answered one
+ *  after another are near each other.
+ *
  *  Source:
  *  https://coursera.cs.princeton.edu/algs4/assignments/kdtree/specification.php
  **************************************************************************** */
@@ -13,36 +56,267 @@ import edu.princeton.cs.algs4.RectHV;
 import edu.princeton.cs.algs4.StdDraw;
 import edu.princeton.cs.algs4.StdIn;
 
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
 public class KdTree {
 
     private static final boolean VERTICAL = true;
     private static final boolean HORIZONTAL = false;
+    private static final int NONE = -1;   // no node
+    private static final int INITIAL_CAPACITY = 16;
+    // subtrees with more points than this are built by forked tasks
+    private static final int PARALLEL_CUTOFF = 1 << 13;
+    // queries a batch task answers without forking
+    private static final int BATCH_CHUNK = 1 << 10;
+    // most of a subtree's nodes a child may hold before the subtree is
+    // rebuilt, if an insert finds the tree too deep
+    private static final double ALPHA = 2.0 / 3.0;
+    private static final double LOG_INVERSE_ALPHA = Math.log(1 / ALPHA);
+
+    // the plane's bounds, the rectangle of the root
+    private static final double XMIN = 0, YMIN = 0, XMAX = 1, YMAX = 1;
+
+
+    private double[] xs;  // x-coordinate of each node's point
+    private double[] ys;  // y-coordinate of each node's point
+    private int[] left;   // each node's left (smaller) child, or NONE
+    private int[] right;  // each node's right child, or NONE
+    private boolean[] deleted;  // is each node's point deleted, or the node unused?
+    private int root;       // root of KdTree, or NONE
+    private int n;          // number of points in KdTree
+    private int inTree;     // nodes in the tree, those of deleted points included
+    private int maxInTree;  // most nodes in the tree since it was last rebuilt whole
+    private int used;       // nodes in the arrays, unused ones included
+    private int[] path = new int[INITIAL_CAPACITY];   // an insert's ancestors
+
+    private long updates;   // inserts and deletes that changed the set
+    private long rebuilds;  // subtrees rebuilt, the whole tree included
+    private long rebuilt;   // points placed by those rebuilds
 
 
-    private Node root;  // root of KdTree
-    private int n;      // number of key-value pairs in KdTree
-    private final RectHV plane;  // Starting plane/sheet
+    // construct an empty set of points
+    public KdTree() {
+        allocate(INITIAL_CAPACITY);
+        root = NONE;
+        n = 0;
+        inTree = maxInTree = used = 0;
+    }
 
+    // construct the set of the given points, as a balanced tree
+    public KdTree(Point2D[] points) {
+        if (points == null) throw new IllegalArgumentException();
+        double[] x = new double[points.length];
+        double[] y = new double[points.length];
+        for (int i = 0; i < points.length; i++) {
+            if (points[i] == null) throw new IllegalArgumentException();
+            x[i] = points[i].x();
+            y[i] = points[i].y();
+        }
+        n = distinct(x, y);
+        allocate(Math.max(n, INITIAL_CAPACITY));
+        System.arraycopy(x, 0, xs, 0, n);
+        System.arraycopy(y, 0, ys, 0, n);
+        inTree = maxInTree = used = n;
+        root = NONE;
+        if (n > 0) {
+            new Build(0, n, VERTICAL, NONE, false).invoke();
+            layout();
+        }
+    }
 
-    private class Node {
-        private final Point2D point;
-        private Node left, right;
-        private final RectHV rect;
-        private final boolean division;
+    // construct the set of the points in the stream, as a balanced tree
+    public KdTree(Stream<Point2D> points) {
+        this(points == null ? null : points.toArray(Point2D[]::new));
+    }
+
+    private void allocate(int capacity) {
+        xs = new double[capacity];
+        ys = new double[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        deleted = new boolean[capacity];
+    }
 
+    private void grow() {
+        int capacity = 2 * xs.length;
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        deleted = Arrays.copyOf(deleted, capacity);
+    }
 
-        public Node(Point2D point, RectHV rect, boolean division) {
-            this.point = point;
-            this.rect = rect;
+    // Move the distinct points of x[] and y[] to their front and return
+    // how many there are, using an open-addressing hash set of indices.
+    // Points are compared with ==, as insert() compares them, so -0.0 is
+    // hashed as 0.0.
+    private static int distinct(double[] x, double[] y) {
+        int[] table = new int[Integer.highestOneBit(Math.max(x.length, 1)) << 2];
+        int mask = table.length - 1;
+        int count = 0;
+        for (int i = 0; i < x.length; i++) {
+            // adding 0.0 turns -0.0 into 0.0 and leaves every other value
+            long bits = Double.doubleToLongBits(x[i] + 0.0) * 31
+                    + Double.doubleToLongBits(y[i] + 0.0);
+            bits *= 0x9E3779B97F4A7C15L;
+            int slot = (int) (bits >>> 32) & mask;
+            while (true) {
+                int j = table[slot] - 1;   // stored index + 1, so 0 is empty
+                if (j < 0) {
+                    x[count] = x[i];
+                    y[count] = y[i];
+                    table[slot] = ++count;
+                    break;
+                }
+                if (x[j] == x[i] && y[j] == y[i]) break;
+                slot = (slot + 1) & mask;
+            }
+        }
+        return count;
+    }
+
+    // Builds the subtree of the points in [lo, hi) and links its root to
+    // the parent, forking for large halves. Each node stays at the index
+    // where partitioning leaves it, so a subtree's nodes fill its range
+    // and the tasks write apart.
+    private class Build extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int lo, hi;
+        private final boolean division;
+        private final int parent;      // NONE for the root
+        private final boolean isLeft;  // is this the parent's left subtree?
+
+        Build(int lo, int hi, boolean division, int parent, boolean isLeft) {
+            this.lo = lo;
+            this.hi = hi;
             this.division = division;
+            this.parent = parent;
+            this.isLeft = isLeft;
+        }
+
+        protected void compute() {
+            if (hi - lo <= PARALLEL_CUTOFF) {
+                link(build(lo, hi, division));
+                return;
+            }
+            int mid = partition(lo, hi, division);
+            link(mid);
+            invokeAll(new Build(lo, mid, !division, mid, true),
+                      new Build(mid + 1, hi, !division, mid, false));
+        }
+
+        private void link(int node) {
+            if (parent == NONE) root = node;
+            else if (isLeft) left[parent] = node;
+            else right[parent] = node;
         }
     }
 
-    // construct an empty set of points
-    public KdTree() {
-        plane = new RectHV(0, 0, 1, 1);
-        n = 0;
-        root = null;
+    // root of the subtree built over the points in [lo, hi), or NONE
+    private int build(int lo, int hi, boolean division) {
+        if (lo >= hi) return NONE;
+        int mid = partition(lo, hi, division);
+        left[mid] = build(lo, mid, !division);
+        right[mid] = build(mid + 1, hi, !division);
+        return mid;
+    }
+
+    // Rearrange the points in [lo, hi) around a median along the axis and
+    // return its index: points before it are less in the order less()
+    // gives, points after it are not, so that they lie in the subtrees
+    // where contains() looks for them. This is quickselect with 3-way
+    // partitioning, which leaves any points equal to the median together,
+    // the first of them the node.
+    private int partition(int lo, int hi, boolean division) {
+        double[] keys = division == VERTICAL ? xs : ys;
+        double[] ties = division == VERTICAL ? ys : xs;
+        int k = lo + (hi - lo) / 2;
+        hi--;
+        while (true) {
+            int pivot = lo + ThreadLocalRandom.current().nextInt(hi - lo + 1);
+            double v = keys[pivot], w = ties[pivot];
+            int lt = lo, i = lo, gt = hi;
+            while (i <= gt) {
+                double c = keys[i];
+                if (c < v || c == v && ties[i] < w) swap(lt++, i++);
+                else if (c > v || ties[i] > w) swap(i, gt--);
+                else i++;
+            }
+            if (k < lt) hi = lt - 1;
+            else if (k > gt) lo = gt + 1;
+            else return lt;
+        }
+    }
+
+    private void swap(int i, int j) {
+        double t = xs[i];
+        xs[i] = xs[j];
+        xs[j] = t;
+        t = ys[i];
+        ys[i] = ys[j];
+        ys[j] = t;
+    }
+
+    // Renumber the nodes in van Emde Boas order (see above); the tree
+    // must be balanced, as the recursion follows its height, and fill the
+    // arrays' front with no deleted points.
+    private void layout() {
+        int[] order = new int[used];   // old index of each new index
+        veb(root, height(root), order, 0);
+        int[] rank = new int[used];    // new index of each old index
+        for (int i = 0; i < used; i++) {
+            rank[order[i]] = i;
+        }
+
+        double[] x = new double[xs.length];
+        double[] y = new double[xs.length];
+        int[] l = new int[xs.length];
+        int[] r = new int[xs.length];
+        for (int i = 0; i < used; i++) {
+            int old = order[i];
+            x[i] = xs[old];
+            y[i] = ys[old];
+            l[i] = left[old] == NONE ? NONE : rank[left[old]];
+            r[i] = right[old] == NONE ? NONE : rank[right[old]];
+        }
+        xs = x;
+        ys = y;
+        left = l;
+        right = r;
+        root = rank[root];
+    }
+
+    // Place the top height levels of the subtree at node in order from
+    // next on and return the next free place: the upper half of those
+    // levels, then each subtree below it, all recursively.
+    private int veb(int node, int height, int[] order, int next) {
+        if (node == NONE) return next;
+        if (height == 1) {
+            order[next] = node;
+            return next + 1;
+        }
+        int top = height / 2;
+        next = veb(node, top, order, next);
+        return vebBelow(node, top, height - top, order, next);
+    }
+
+    // place each subtree depth levels below node, left to right, with the
+    // top height levels of each
+    private int vebBelow(int node, int depth, int height, int[] order, int next) {
+        if (node == NONE) return next;
+        if (depth == 0) return veb(node, height, order, next);
+        next = vebBelow(left[node], depth - 1, height, order, next);
+        return vebBelow(right[node], depth - 1, height, order, next);
+    }
+
+    // levels in the subtree at node
+    private int height(int node) {
+        if (node == NONE) return 0;
+        return 1 + Math.max(height(left[node]), height(right[node]));
     }
 
     // is the set empty?
@@ -58,178 +332,644 @@ public class KdTree {
     // add the point to the set (if it is not already in the set)
     public void insert(Point2D p) {
         if (p == null) throw new IllegalArgumentException();
+        double px = p.x(), py = p.y();
+
+        int depth = 0;
+        boolean less = false;
+        boolean division = VERTICAL;
+        for (int x = root; x != NONE; division = !division) {
+            if (xs[x] == px && ys[x] == py) {
+                if (deleted[x]) {
+                    deleted[x] = false;
+                    n++;
+                    updates++;
+                }
+                return;
+            }
+            if (depth + 1 == path.length) path = Arrays.copyOf(path, 2 * path.length);
+            path[depth++] = x;
+            less = less(px, py, x, division);
+            x = less ? left[x] : right[x];
+        }
 
-        root = insert(root, p, plane, VERTICAL);
+        if (used == xs.length) {
+            if (2 * n <= used) {
+                // half the arrays are unused: compact them instead
+                rebuild();
+                insert(p);
+                return;
+            }
+            grow();
+        }
+        int node = used++;
+        xs[node] = px;
+        ys[node] = py;
+        left[node] = NONE;
+        right[node] = NONE;
+        deleted[node] = false;
+        if (depth == 0) root = node;
+        else if (less) left[path[depth - 1]] = node;
+        else right[path[depth - 1]] = node;
+        path[depth] = node;
+        n++;
+        inTree++;
+        maxInTree = Math.max(maxInTree, inTree);
+        updates++;
+
+        if (depth > Math.log(inTree) / LOG_INVERSE_ALPHA) rebalance(depth);
     }
 
-    private Node insert(Node rootNode, Point2D p, RectHV rect, boolean division) {
-        if (rootNode == null) {
-            this.n++;
-            return new Node(p, rect, division);
-        }
+    // remove the point from the set (if it is in the set)
+    public void delete(Point2D p) {
+        if (p == null) throw new IllegalArgumentException();
+        int x = find(p.x(), p.y());
+        if (x == NONE) return;
+        deleted[x] = true;
+        n--;
+        updates++;
+        if (2 * n < maxInTree) rebuild();
+    }
 
-        if (rootNode.point.equals(p)) {
-            return rootNode;
+    // The node at path[depth] is too deep for the tree's size, so some
+    // ancestor on its path has a child holding more than ALPHA of its
+    // subtree's nodes (were there none, the subtree of the node's
+    // depth-th ancestor, the root, would have more than 1 / ALPHA^depth
+    // nodes). Rebuild the subtree of the lowest one.
+    private void rebalance(int depth) {
+        int size = 1;   // nodes in the subtree of path[i + 1]
+        for (int i = depth - 1; i >= 0; i--) {
+            int x = path[i];
+            int sibling = left[x] == path[i + 1] ? right[x] : left[x];
+            int total = size + count(sibling) + 1;
+            if (size > ALPHA * total) {
+                if (i == 0) rebuild();
+                else rebuild(i, total);
+                return;
+            }
+            size = total;
         }
+    }
 
-        // compare x or y coordinate
-        boolean cmp;
-        if (division == VERTICAL) {
-            cmp = p.x() < rootNode.point.x();
+    // nodes in the subtree at node
+    private int count(int node) {
+        if (node == NONE) return 0;
+        return 1 + count(left[node]) + count(right[node]);
+    }
+
+    // Rebuild the subtree of path[depth], of size nodes, balanced from its
+    // live points, which are copied to the end of the arrays. Its old
+    // nodes are marked deleted, so that rebuild() drops them.
+    private void rebuild(int depth, int size) {
+        if (used + size > xs.length) {
+            if (2 * n <= used) {
+                rebuild();
+                return;
+            }
+            grow();   // size <= used, so twice the arrays suffice
         }
-        else {   // h.division == HORIZONTAL
-            cmp = p.y() < rootNode.point.y();
+        int lo = used;
+        used = gather(path[depth], used);
+        inTree -= size - (used - lo);
+        rebuilds++;
+        rebuilt += used - lo;
+
+        int node = build(lo, used, depth % 2 == 0 ? VERTICAL : HORIZONTAL);
+        int parent = path[depth - 1];
+        if (left[parent] == path[depth]) left[parent] = node;
+        else right[parent] = node;
+    }
+
+    // copy the live points of the subtree at x to the nodes from next on,
+    // marking its nodes deleted, and return the next free node
+    private int gather(int x, int next) {
+        if (x == NONE) return next;
+        if (!deleted[x]) {
+            xs[next] = xs[x];
+            ys[next] = ys[x];
+            deleted[next] = false;
+            next++;
         }
+        deleted[x] = true;
+        next = gather(left[x], next);
+        return gather(right[x], next);
+    }
 
-        // Navigate KdTree
-        if (cmp) { // less than
-            if (rootNode.division == VERTICAL) {
-                RectHV newRect = new RectHV(rootNode.rect.xmin(), rootNode.rect.ymin(),
-                                            rootNode.point.x(),
-                                            rootNode.rect.ymax());
-                rootNode.left = insert(rootNode.left, p, newRect, HORIZONTAL);
-            }
-            else { // h.division == HORIZONTAL
-                RectHV newRect = new RectHV(rootNode.rect.xmin(), rootNode.rect.ymin(),
-                                            rootNode.rect.xmax(),
-                                            rootNode.point.y());
-                rootNode.left = insert(rootNode.left, p, newRect, VERTICAL);
+    // Rebuild the whole tree, balanced and in van Emde Boas order, from
+    // its live points moved to the front of the arrays.
+    private void rebuild() {
+        int live = 0;
+        for (int i = 0; i < used; i++) {
+            if (!deleted[i]) {
+                xs[live] = xs[i];
+                ys[live] = ys[i];
+                live++;
             }
         }
-        else {  // cmp == false, greater than
-            if (rootNode.division == VERTICAL) {
-                RectHV newRect = new RectHV(rootNode.point.x(), rootNode.rect.ymin(),
-                                            rootNode.rect.xmax(),
-                                            rootNode.rect.ymax());
-                rootNode.right = insert(rootNode.right, p, newRect, HORIZONTAL);
-            }
-            else { // h.division == HORIZONTAL
-                RectHV newRect = new RectHV(rootNode.rect.xmin(), rootNode.point.y(),
-                                            rootNode.rect.xmax(),
-                                            rootNode.rect.ymax());
-                rootNode.right = insert(rootNode.right, p, newRect, VERTICAL);
-            }
+        Arrays.fill(deleted, 0, used, false);
+        inTree = maxInTree = used = n;
+        rebuilds++;
+        rebuilt += n;
+
+        root = NONE;
+        if (n > 0) {
+            new Build(0, n, VERTICAL, NONE, false).invoke();
+            layout();
         }
-        return rootNode;
     }
 
+    // How well the tree has kept its balance, for monitoring: see Balance.
+    // This takes time proportional to the number of nodes.
+    public Balance balance() {
+        return new Balance(height(root), maxInTree, inTree - n,
+                           updates, rebuilds, rebuilt);
+    }
+
+    // A snapshot of a tree's depth and of the work its rebuilds have done
+    // since it was constructed.
+    public static final class Balance {
+        private final int height;
+        private final int bound;
+        private final int deletedNodes;
+        private final long updates;
+        private final long rebuilds;
+        private final long rebuilt;
+
+        private Balance(int height, int maxNodes, int deletedNodes,
+                        long updates, long rebuilds, long rebuilt) {
+            this.height = height;
+            this.bound = 1 + (int) (Math.log(Math.max(maxNodes, 1)) / LOG_INVERSE_ALPHA);
+            this.deletedNodes = deletedNodes;
+            this.updates = updates;
+            this.rebuilds = rebuilds;
+            this.rebuilt = rebuilt;
+        }
+
+        // levels of the tree, the most nodes a search visits on one path
+        public int height() {
+            return height;
+        }
+
+        // the most levels rebalancing allows the tree: one more than log
+        // base 1/ALPHA of the most nodes it has had since it was last
+        // rebuilt whole, which is at most 2n
+        public int heightBound() {
+            return bound;
+        }
+
+        // deleted points still in the tree, dividing the plane
+        public int deletedNodes() {
+            return deletedNodes;
+        }
+
+        // inserts and deletes that changed the set
+        public long updates() {
+            return updates;
+        }
+
+        // subtrees rebuilt, whole tree rebuilds included
+        public long rebuilds() {
+            return rebuilds;
+        }
+
+        // points placed by those rebuilds
+        public long rebuiltPoints() {
+            return rebuilt;
+        }
+
+        // points rebuilt per update: the amortized rebuild work, which
+        // stays O(log n) per update
+        public double amortizedRebuild() {
+            return updates == 0 ? 0 : (double) rebuilt / updates;
+        }
+
+        public String toString() {
+            return String.format("height %d (bound %d), deleted nodes %d, rebuilds %d, "
+                                 + "%.2f points rebuilt per update",
+                                 height, bound, deletedNodes, rebuilds, amortizedRebuild());
+        }
+    }
 
     // does the set contain point p?
     public boolean contains(Point2D p) {
         if (p == null) throw new IllegalArgumentException();
-        return (get(root, p) != null);
+        return find(p.x(), p.y()) != NONE;
     }
 
-
-    private Point2D get(Node x, Point2D p) {
-        while (x != null) {
-            if (x.point.equals(p)) {
-                return p;
-            }
-            boolean cmp;
-            if (x.division == VERTICAL) {
-                cmp = p.x() < x.point.x();
-            }
-            else {   // h.division == HORIZONTAL
-                cmp = p.y() < x.point.y();
-            }
-
-            if (cmp) {
-                x = x.left;
-            }
-            else {
-                x = x.right;
-            }
+    // node holding the point (px, py), or NONE
+    private int find(double px, double py) {
+        boolean division = VERTICAL;
+        for (int x = root; x != NONE; division = !division) {
+            if (xs[x] == px && ys[x] == py) return deleted[x] ? NONE : x;
+            x = less(px, py, x, division) ? left[x] : right[x];
         }
-        return null;
+        return NONE;
+    }
+
+    // Does (px, py) come before node x's point along the division's axis?
+    // Ties on it are broken by the other coordinate, so that distinct
+    // points are never equal. A subtree's points still lie on its side of
+    // the division or on the division itself, which is all range() and
+    // nearest() assume of them.
+    private boolean less(double px, double py, int x, boolean division) {
+        if (division == VERTICAL) return px < xs[x] || px == xs[x] && py < ys[x];
+        else return py < ys[x] || py == ys[x] && px < xs[x];
     }
 
     // draw all points to standard draw
     public void draw() {
-        draw(root);
+        if (root != NONE) draw(root, VERTICAL, XMIN, YMIN, XMAX, YMAX);
     }
 
-    private void draw(Node x) {
-        StdDraw.setPenRadius(0.01);
-        StdDraw.setPenColor(StdDraw.BLACK);
-        x.point.draw();
-        StdDraw.setPenRadius();
+    private void draw(int x, boolean division,
+                      double xmin, double ymin, double xmax, double ymax) {
+        // a deleted point's division still stands
+        if (!deleted[x]) {
+            StdDraw.setPenRadius(0.01);
+            StdDraw.setPenColor(StdDraw.BLACK);
+            StdDraw.point(xs[x], ys[x]);
+            StdDraw.setPenRadius();
+        }
 
-        if (x.division == VERTICAL) {
+        if (division == VERTICAL) {
             StdDraw.setPenColor(StdDraw.RED);
-            StdDraw.line(x.point.x(), x.rect.ymin(), x.point.x(),
-                         x.rect.ymax());
+            StdDraw.line(xs[x], ymin, xs[x], ymax);
+            if (left[x] != NONE) draw(left[x], HORIZONTAL, xmin, ymin, xs[x], ymax);
+            if (right[x] != NONE) draw(right[x], HORIZONTAL, xs[x], ymin, xmax, ymax);
         }
         else {
             StdDraw.setPenColor(StdDraw.BLUE);
-            StdDraw.line(x.rect.xmin(), x.point.y(), x.rect.xmax(),
-                         x.point.y());
-        }
-        if (x.left != null) {
-            draw(x.left);
-        }
-        if (x.right != null) {
-            draw(x.right);
+            StdDraw.line(xmin, ys[x], xmax, ys[x]);
+            if (left[x] != NONE) draw(left[x], VERTICAL, xmin, ymin, xmax, ys[x]);
+            if (right[x] != NONE) draw(right[x], VERTICAL, xmin, ys[x], xmax, ymax);
         }
     }
 
     // all points that are inside the rectangle (or on the boundary)
     public Iterable<Point2D> range(RectHV rect) {
+        if (rect == null) throw new IllegalArgumentException();
+        Nodes nodes = new Nodes();
+        range(rect.xmin(), rect.ymin(), rect.xmax(), rect.ymax(), root, VERTICAL, nodes);
         Queue<Point2D> ptsInRange = new Queue<>();
-        range(rect, root, ptsInRange);
+        for (int i = 0; i < nodes.size; i++) {
+            ptsInRange.enqueue(point(nodes.nodes[i]));
+        }
         return ptsInRange;
     }
 
-    private void range(RectHV rect, Node x, Queue<Point2D> queue) {
-        if (x == null) {
-            return;
+    // a growing list of node indices
+    private static final class Nodes {
+        int[] nodes = new int[16];
+        int size;
+
+        void add(int node) {
+            if (size == nodes.length) nodes = Arrays.copyOf(nodes, 2 * size);
+            nodes[size++] = node;
         }
+    }
 
-        if (rect.contains(x.point)) {
-            queue.enqueue(x.point);
+    // Only the side of each division that the query rectangle reaches is
+    // searched, which is the test the node rectangles were kept for: the
+    // query meets the left side of a vertical division at x exactly when
+    // qxmin <= x, and the right side when qxmax >= x.
+    private void range(double qxmin, double qymin, double qxmax, double qymax,
+                       int x, boolean division, Nodes found) {
+        if (x == NONE) {
+            return;
         }
 
-        if (rect.intersects(x.rect)) {
-            range(rect, x.left, queue);
-            range(rect, x.right, queue);
+        double px = xs[x], py = ys[x];
+        if (!deleted[x] && px >= qxmin && px <= qxmax && py >= qymin && py <= qymax) {
+            found.add(x);
         }
+
+        double split = division == VERTICAL ? px : py;
+        double low = division == VERTICAL ? qxmin : qymin;
+        double high = division == VERTICAL ? qxmax : qymax;
+        if (low <= split) range(qxmin, qymin, qxmax, qymax, left[x], !division, found);
+        if (high >= split) range(qxmin, qymin, qxmax, qymax, right[x], !division, found);
     }
 
     // a nearest neighbor in the set to point p; null if the set is empty
     public Point2D nearest(Point2D p) {
         if (p == null) throw new IllegalArgumentException();
         if (this.isEmpty()) throw new IllegalArgumentException();
-        return nearest(p, root, root.point);
+        Nearest best = new Nearest(1);
+        nearest(p.x(), p.y(), root, VERTICAL, XMIN, YMIN, XMAX, YMAX, best);
+        return point(best.nodes[0]);
+    }
 
+    // the k points in the set nearest to p, nearest first; all of them if
+    // the set has fewer than k
+    public Iterable<Point2D> nearest(Point2D p, int k) {
+        if (p == null || k < 1) throw new IllegalArgumentException();
+        Nearest best = new Nearest(Math.min(k, n));
+        nearest(p.x(), p.y(), root, VERTICAL, XMIN, YMIN, XMAX, YMAX, best);
+        Queue<Point2D> points = new Queue<>();
+        for (int node : best.sorted()) {
+            points.enqueue(point(node));
+        }
+        return points;
     }
 
-    private Point2D nearest(Point2D p, Node x, Point2D closestPoint) {
-        if (x == null) return closestPoint;
+    // all points within distance r of p (or at distance r)
+    public Iterable<Point2D> withinRadius(Point2D p, double r) {
+        if (p == null || !(r >= 0)) throw new IllegalArgumentException();
+        WithinRadius within = new WithinRadius(r * r);
+        nearest(p.x(), p.y(), root, VERTICAL, XMIN, YMIN, XMAX, YMAX, within);
+        return within.points;
+    }
 
-        if (x.point.distanceSquaredTo(p) < closestPoint.distanceSquaredTo(p)) {
-            closestPoint = x.point;
+    private Point2D point(int node) {
+        return new Point2D(xs[node], ys[node]);
+    }
+
+    // What a search keeps of the nodes it meets: nodes further than the
+    // square root of bound from the query are of no interest, so the
+    // search skips rectangles that far away. offer() is only called
+    // with distances within the bound.
+    private abstract static class Neighbors {
+        double bound;   // squared distance
+
+        abstract void offer(int node, double distance);
+    }
+
+    // the k nearest nodes so far, in a max-heap on squared distance
+    // (heap[0] the farthest), with the bound at the k-th distance once
+    // there are k
+    private static final class Nearest extends Neighbors {
+        final int[] nodes;
+        final double[] distances;
+        int size;
+
+        Nearest(int k) {
+            nodes = new int[k];
+            distances = new double[k];
+            bound = Double.POSITIVE_INFINITY;
         }
 
-        if (x.rect.distanceSquaredTo(p) < closestPoint.distanceSquaredTo(p)) {
+        // empty, for another query
+        void clear() {
+            size = 0;
+            bound = Double.POSITIVE_INFINITY;
+        }
 
-            boolean cmp;
-            if (x.division == VERTICAL) {
-                cmp = p.x() < x.point.x();
+        void offer(int node, double distance) {
+            if (size < nodes.length) {
+                int i = size++;
+                // sift up
+                while (i > 0 && distances[(i - 1) / 2] < distance) {
+                    nodes[i] = nodes[(i - 1) / 2];
+                    distances[i] = distances[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                nodes[i] = node;
+                distances[i] = distance;
             }
-            else {   // h.division == HORIZONTAL
-                cmp = p.y() < x.point.y();
+            else if (distance < distances[0]) {
+                replaceTop(node, distance);
             }
+            if (size == nodes.length) bound = distances[0];
+        }
 
-            if (cmp) {
-                closestPoint = nearest(p, x.left, closestPoint);
-                closestPoint = nearest(p, x.right, closestPoint);
+        // put the node in place of the farthest and sift it down
+        private void replaceTop(int node, double distance) {
+            int i = 0;
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && distances[child + 1] > distances[child]) child++;
+                if (distances[child] <= distance) break;
+                nodes[i] = nodes[child];
+                distances[i] = distances[child];
+                i = child;
+            }
+            nodes[i] = node;
+            distances[i] = distance;
+        }
+
+        // the nodes, nearest first; empties the heap
+        int[] sorted() {
+            int[] sorted = new int[size];
+            while (size > 0) {
+                sorted[size - 1] = nodes[0];
+                size--;
+                replaceTop(nodes[size], distances[size]);
+            }
+            return sorted;
+        }
+    }
+
+    // every node within the bound
+    private final class WithinRadius extends Neighbors {
+        final Queue<Point2D> points = new Queue<>();
+
+        WithinRadius(double radiusSquared) {
+            bound = radiusSquared;
+        }
+
+        void offer(int node, double distance) {
+            points.enqueue(point(node));
+        }
+    }
+
+    // Search the subtree at x, whose rectangle is given, for the nodes the
+    // neighbors want. Each point's distance is computed once, and the
+    // query's side of each division is searched first, so that the bound
+    // tightens before the far side is reached.
+    private void nearest(double px, double py, int x, boolean division,
+                         double xmin, double ymin, double xmax, double ymax, Neighbors best) {
+        if (x == NONE) return;
+
+        // nothing in this node's rectangle is within the bound
+        double dx = px < xmin ? xmin - px : px > xmax ? px - xmax : 0;
+        double dy = py < ymin ? ymin - py : py > ymax ? py - ymax : 0;
+        if (dx * dx + dy * dy > best.bound) return;
+
+        double distance = distanceSquared(x, px, py);
+        if (distance <= best.bound && !deleted[x]) best.offer(x, distance);
+
+        if (division == VERTICAL) {
+            if (less(px, py, x, VERTICAL)) {
+                nearest(px, py, left[x], HORIZONTAL, xmin, ymin, xs[x], ymax, best);
+                nearest(px, py, right[x], HORIZONTAL, xs[x], ymin, xmax, ymax, best);
             }
             else {
-                closestPoint = nearest(p, x.right, closestPoint);
-                closestPoint = nearest(p, x.left, closestPoint);
+                nearest(px, py, right[x], HORIZONTAL, xs[x], ymin, xmax, ymax, best);
+                nearest(px, py, left[x], HORIZONTAL, xmin, ymin, xs[x], ymax, best);
+            }
+        }
+        else {
+            if (less(px, py, x, HORIZONTAL)) {
+                nearest(px, py, left[x], VERTICAL, xmin, ymin, xmax, ys[x], best);
+                nearest(px, py, right[x], VERTICAL, xmin, ys[x], xmax, ymax, best);
+            }
+            else {
+                nearest(px, py, right[x], VERTICAL, xmin, ys[x], xmax, ymax, best);
+                nearest(px, py, left[x], VERTICAL, xmin, ymin, xmax, ys[x], best);
+            }
+        }
+    }
+
+    // Store the point nearest to each query at the same index of x[] and
+    // y[]. The queries run in parallel, in Morton order (see batch());
+    // the tree must not change meanwhile.
+    public void nearest(Point2D[] queries, double[] x, double[] y) {
+        if (queries == null || x == null || y == null) throw new IllegalArgumentException();
+        if (x.length < queries.length || y.length < queries.length) {
+            throw new IllegalArgumentException();
+        }
+        if (this.isEmpty() && queries.length > 0) throw new IllegalArgumentException();
+        double[] qx = new double[queries.length];
+        double[] qy = new double[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            if (queries[i] == null) throw new IllegalArgumentException();
+            qx[i] = queries[i].x();
+            qy[i] = queries[i].y();
+        }
+
+        int[] order = mortonOrder(qx, qy);
+        batch(order.length, (lo, hi) -> {
+            Nearest best = new Nearest(1);
+            for (int i = lo; i < hi; i++) {
+                int q = order[i];
+                best.clear();
+                nearest(qx[q], qy[q], root, VERTICAL, XMIN, YMIN, XMAX, YMAX, best);
+                x[q] = xs[best.nodes[0]];
+                y[q] = ys[best.nodes[0]];
+            }
+        });
+    }
+
+    // Find the points in each rectangle, in parallel and in Morton order
+    // of the rectangles' centers (see batch()), and return how many there
+    // are in all. Those in rects[i] are stored at indices offsets[i] to
+    // offsets[i + 1] - 1 of x[] and y[]. If x[] and y[] cannot hold them
+    // all, only offsets[] is filled, and the caller can retry with larger
+    // arrays. The tree must not change meanwhile.
+    public int range(RectHV[] rects, int[] offsets, double[] x, double[] y) {
+        if (rects == null || offsets == null || x == null || y == null) {
+            throw new IllegalArgumentException();
+        }
+        if (offsets.length < rects.length + 1) throw new IllegalArgumentException();
+        double[] cx = new double[rects.length];
+        double[] cy = new double[rects.length];
+        for (int i = 0; i < rects.length; i++) {
+            if (rects[i] == null) throw new IllegalArgumentException();
+            cx[i] = (rects[i].xmin() + rects[i].xmax()) / 2;
+            cy[i] = (rects[i].ymin() + rects[i].ymax()) / 2;
+        }
+
+        // each chunk of the order lists its queries' nodes one query after
+        // another; found[q] is where query q's nodes start in its chunk
+        int[] order = mortonOrder(cx, cy);
+        Nodes[] chunks = new Nodes[(order.length + BATCH_CHUNK - 1) / BATCH_CHUNK];
+        int[] found = new int[rects.length];
+        int[] counts = new int[rects.length];
+        batch(order.length, (lo, hi) -> {
+            Nodes nodes = new Nodes();
+            for (int i = lo; i < hi; i++) {
+                int q = order[i];
+                RectHV rect = rects[q];
+                found[q] = nodes.size;
+                range(rect.xmin(), rect.ymin(), rect.xmax(), rect.ymax(), root, VERTICAL, nodes);
+                counts[q] = nodes.size - found[q];
+            }
+            chunks[lo / BATCH_CHUNK] = nodes;
+        });
+
+        long total = 0;
+        for (int q = 0; q < rects.length; q++) {
+            offsets[q] = (int) total;
+            total += counts[q];
+            if (total > Integer.MAX_VALUE) throw new IllegalArgumentException("too many points");
+        }
+        offsets[rects.length] = (int) total;
+        if (total > x.length || total > y.length) return (int) total;
+
+        batch(order.length, (lo, hi) -> {
+            Nodes nodes = chunks[lo / BATCH_CHUNK];
+            for (int i = lo; i < hi; i++) {
+                int q = order[i];
+                for (int j = 0; j < counts[q]; j++) {
+                    int node = nodes.nodes[found[q] + j];
+                    x[offsets[q] + j] = xs[node];
+                    y[offsets[q] + j] = ys[node];
+                }
             }
+        });
+        return (int) total;
+    }
+
+    // the work on queries lo to hi - 1 of a batch
+    private interface Chunk {
+        void run(int lo, int hi);
+    }
+
+    // Run a batch of queries in chunks of BATCH_CHUNK, in parallel on the
+    // common ForkJoinPool. Chunks start at multiples of BATCH_CHUNK, so a
+    // chunk's first query identifies it.
+    private static void batch(int queries, Chunk chunk) {
+        new ChunkTask(0, queries, chunk).invoke();
+    }
+
+    private static final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int lo, hi;
+        private final Chunk chunk;
+
+        ChunkTask(int lo, int hi, Chunk chunk) {
+            this.lo = lo;
+            this.hi = hi;
+            this.chunk = chunk;
+        }
+
+        protected void compute() {
+            if (hi - lo <= BATCH_CHUNK) {
+                if (lo < hi) chunk.run(lo, hi);
+                return;
+            }
+            int chunks = (hi - lo + BATCH_CHUNK - 1) / BATCH_CHUNK;
+            int mid = lo + chunks / 2 * BATCH_CHUNK;
+            invokeAll(new ChunkTask(lo, mid, chunk), new ChunkTask(mid, hi, chunk));
         }
-        return closestPoint;
+    }
+
+    // Indices of the points in the order of their Morton (Z-order) codes:
+    // the coordinates, clamped to the unit square, are quantized to 16
+    // bits each and their bits interleaved. Points close in this order are
+    // mostly close in the plane, so consecutive queries mostly visit the
+    // same nodes, still in cache.
+    private static int[] mortonOrder(double[] x, double[] y) {
+        long[] keys = new long[x.length];
+        for (int i = 0; i < keys.length; i++) {
+            long code = spread(quantize(x[i])) | spread(quantize(y[i])) << 1;
+            keys[i] = code << 31 | i;
+        }
+        Arrays.parallelSort(keys);
+        int[] order = new int[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = (int) (keys[i] & Integer.MAX_VALUE);
+        }
+        return order;
+    }
+
+    private static long quantize(double coordinate) {
+        return (long) (Math.min(Math.max(coordinate, XMIN), XMAX) * 0xFFFF);
+    }
+
+    // the 16 low bits of v moved to the even bits of the result
+    private static long spread(long v) {
+        v = (v | v << 8) & 0x00FF00FFL;
+        v = (v | v << 4) & 0x0F0F0F0FL;
+        v = (v | v << 2) & 0x33333333L;
+        v = (v | v << 1) & 0x55555555L;
+        return v;
+    }
+
+    private double distanceSquared(int x, double px, double py) {
+        double dx = xs[x] - px;
+        double dy = ys[x] - py;
+        return dx * dx + dy * dy;
     }
 
 
@@ -261,5 +1001,12 @@ public class KdTree {
 
         System.out.println("Size: " + tree.size());
 
+        // Test delete
+        tree.delete(nearestPoint);
+        tree.delete(tree.nearest(nearestPoint));
+        System.out.println("Nearest after delete: " + tree.nearest(nearestPoint));
+        System.out.println("Size after delete: " + tree.size());
+        System.out.println("Balance: " + tree.balance());
+
     }
 }
@@ -44,6 +44,12 @@ public class PointSET {
         set.add(p);
     }
 
+    // remove the point from the set (if it is in the set)
+    public void delete(Point2D p) {
+        if (p == null) throw new IllegalArgumentException();
+        set.delete(p);
+    }
+
     // does the set contain point p?
     public boolean contains(Point2D p) {
         if (p == null) throw new IllegalArgumentException();
@@ -84,6 +90,91 @@ public class PointSET {
         return closest;
     }
 
+    // the k points in the set nearest to p, nearest first; all of them if
+    // the set has fewer than k
+    public Iterable<Point2D> nearest(Point2D p, int k) {
+        if (p == null || k < 1) throw new IllegalArgumentException();
+
+        Nearest nearest = new Nearest(Math.min(k, set.size()));
+        for (Point2D point : set) {
+            nearest.offer(point, point.distanceSquaredTo(p));
+        }
+        Queue<Point2D> queue = new Queue<Point2D>();
+        for (Point2D point : nearest.sorted()) {
+            queue.enqueue(point);
+        }
+        return queue;
+    }
+
+    // the k nearest points so far, in a max-heap on squared distance
+    // (heap[0] the farthest), each point's distance kept beside it
+    private static final class Nearest {
+        final Point2D[] points;
+        final double[] distances;
+        int size;
+
+        Nearest(int k) {
+            points = new Point2D[k];
+            distances = new double[k];
+        }
+
+        void offer(Point2D point, double distance) {
+            if (size < points.length) {
+                int i = size++;
+                // sift up
+                while (i > 0 && distances[(i - 1) / 2] < distance) {
+                    points[i] = points[(i - 1) / 2];
+                    distances[i] = distances[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                points[i] = point;
+                distances[i] = distance;
+            }
+            else if (size > 0 && distance < distances[0]) {
+                replaceTop(point, distance);
+            }
+        }
+
+        // put the point in place of the farthest and sift it down
+        private void replaceTop(Point2D point, double distance) {
+            int i = 0;
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && distances[child + 1] > distances[child]) child++;
+                if (distances[child] <= distance) break;
+                points[i] = points[child];
+                distances[i] = distances[child];
+                i = child;
+            }
+            points[i] = point;
+            distances[i] = distance;
+        }
+
+        // the points, nearest first; empties the heap
+        Point2D[] sorted() {
+            Point2D[] sorted = new Point2D[size];
+            while (size > 0) {
+                sorted[size - 1] = points[0];
+                size--;
+                replaceTop(points[size], distances[size]);
+            }
+            return sorted;
+        }
+    }
+
+    // all points within distance r of p (or at distance r)
+    public Iterable<Point2D> withinRadius(Point2D p, double r) {
+        if (p == null || !(r >= 0)) throw new IllegalArgumentException();
+
+        Queue<Point2D> queue = new Queue<Point2D>();
+        for (Point2D point : set) {
+            if (point.distanceSquaredTo(p) <= r * r) {
+                queue.enqueue(point);
+            }
+        }
+        return queue;
+    }
+
     // unit testing of the methods (optional)
     public static void main(String[] args) {
 
@@ -0,0 +1,118 @@
+/* *****************************************************************************
+ * Tests of ConcurrentKdTree's inserts and queries.
+ *
+ **************************************************************************** */
+
+import edu.princeton.cs.algs4.Point2D;
+import edu.princeton.cs.algs4.RectHV;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentKdTreeTest {
+
+    // one more than log base 3/2 of n, the height scapegoat rebuilds allow
+    private static int heightBound(int n) {
+        return 1 + (int) (Math.log(n) / Math.log(1.5));
+    }
+
+    private static void assertContainsAll(ConcurrentKdTree tree, Point2D[] points) {
+        assertEquals(points.length, tree.size());
+        for (Point2D p : points) {
+            assertTrue(tree.contains(p), p.toString());
+        }
+        assertTrue(tree.height() <= heightBound(points.length),
+                   tree.height() + " > " + heightBound(points.length));
+    }
+
+    @Test
+    void sortedInsertsStayBalanced() {
+        Point2D[] points = new Point2D[50_000];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new Point2D((double) i / points.length, (double) i / points.length);
+        }
+        ConcurrentKdTree tree = new ConcurrentKdTree();
+        for (Point2D p : points) {
+            tree.insert(p);
+        }
+        assertContainsAll(tree, points);
+    }
+
+    @Test
+    void sharedCoordinateInsertsStayBalanced() {
+        Point2D[] points = new Point2D[50_000];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new Point2D(0.5, (double) i / points.length);
+        }
+        ConcurrentKdTree tree = new ConcurrentKdTree();
+        for (Point2D p : points) {
+            tree.insert(p);
+            tree.insert(p);
+        }
+        assertContainsAll(tree, points);
+    }
+
+    @Test
+    void concurrentSortedInserts() throws InterruptedException {
+        int threads = 4;
+        Point2D[] points = new Point2D[40_000];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new Point2D((double) i / points.length, 0.25);
+        }
+        ConcurrentKdTree tree = new ConcurrentKdTree();
+        Thread[] writers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            writers[t] = new Thread(() -> {
+                for (int i = first; i < points.length; i += threads) {
+                    tree.insert(points[i]);
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertContainsAll(tree, points);
+    }
+
+    @Test
+    void queriesMatchBruteForce() {
+        Random random = new Random(1);
+        ConcurrentKdTree tree = new ConcurrentKdTree();
+        Set<Point2D> points = new HashSet<>();
+        for (int i = 0; i < 5_000; i++) {
+            // a coarse grid, so that many points share a coordinate
+            Point2D p = new Point2D(random.nextInt(50) / 50.0, random.nextInt(50) / 50.0);
+            tree.insert(p);
+            points.add(p);
+        }
+        assertEquals(points.size(), tree.size());
+
+        for (int q = 0; q < 200; q++) {
+            Point2D p = new Point2D(random.nextDouble(), random.nextDouble());
+            double best = Double.POSITIVE_INFINITY;
+            for (Point2D point : points) {
+                best = Math.min(best, point.distanceSquaredTo(p));
+            }
+            assertEquals(best, tree.nearest(p).distanceSquaredTo(p));
+
+            double x = random.nextInt(50) / 50.0, y = random.nextInt(50) / 50.0;
+            RectHV rect = new RectHV(x, y, Math.min(1, x + 0.2), Math.min(1, y + 0.2));
+            Set<Point2D> expected = new HashSet<>();
+            for (Point2D point : points) {
+                if (rect.contains(point)) expected.add(point);
+            }
+            Set<Point2D> found = new HashSet<>();
+            for (Point2D point : tree.range(rect)) {
+                found.add(point);
+            }
+            assertEquals(expected, found);
+        }
+    }
+}
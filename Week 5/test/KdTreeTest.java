@@ -0,0 +1,309 @@
+/* *****************************************************************************
+ * Tests of KdTree's balance and of its queries against PointSET.
+ *
+ **************************************************************************** */
+
+import edu.princeton.cs.algs4.Point2D;
+import edu.princeton.cs.algs4.RectHV;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KdTreeTest {
+
+    // squared distances of points to p, in the order given
+    private static List<Double> distances(Iterable<Point2D> points, Point2D p) {
+        List<Double> distances = new ArrayList<>();
+        for (Point2D point : points) {
+            distances.add(point.distanceSquaredTo(p));
+        }
+        return distances;
+    }
+
+    private static Set<Point2D> toSet(Iterable<Point2D> points) {
+        Set<Point2D> set = new HashSet<>();
+        for (Point2D point : points) {
+            assertTrue(set.add(point), point.toString());
+        }
+        return set;
+    }
+
+    private static void assertBalanced(KdTree tree) {
+        KdTree.Balance balance = tree.balance();
+        assertTrue(balance.height() <= balance.heightBound(), balance.toString());
+    }
+
+    @Test
+    void sameXSortedYStaysBalanced() {
+        KdTree tree = new KdTree();
+        Point2D[] points = new Point2D[50_000];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new Point2D(0.5, (double) i / points.length);
+            tree.insert(points[i]);
+            if (i % 1000 == 0) assertBalanced(tree);
+        }
+        assertBalanced(tree);
+        assertEquals(points.length, tree.size());
+        for (Point2D p : points) {
+            assertTrue(tree.contains(p), p.toString());
+        }
+    }
+
+    @Test
+    void churnOnSharedCoordinatesStaysBalanced() {
+        Random random = new Random(7);
+        KdTree tree = new KdTree();
+        List<Point2D> live = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            if (live.size() > 1000 && random.nextInt(3) == 0) {
+                int k = random.nextInt(live.size());
+                tree.delete(live.get(k));
+                live.set(k, live.get(live.size() - 1));
+                live.remove(live.size() - 1);
+            }
+            else {
+                // x on a coarse grid, so that many points share it
+                Point2D p = new Point2D(random.nextInt(100) / 100.0, random.nextDouble());
+                tree.insert(p);
+                live.add(p);
+            }
+        }
+        assertBalanced(tree);
+        assertEquals(live.size(), tree.size());
+        for (Point2D p : live) {
+            assertTrue(tree.contains(p), p.toString());
+        }
+    }
+
+    @Test
+    void queriesOnSharedCoordinatesMatchBruteForce() {
+        Random random = new Random(1);
+        Set<Point2D> points = new HashSet<>();
+        for (int i = 0; i < 5_000; i++) {
+            points.add(new Point2D(random.nextInt(50) / 50.0, random.nextInt(50) / 50.0));
+        }
+        KdTree loaded = new KdTree(points.toArray(new Point2D[0]));
+        KdTree inserted = new KdTree();
+        for (Point2D p : points) {
+            inserted.insert(p);
+        }
+
+        for (KdTree tree : new KdTree[] { loaded, inserted }) {
+            assertBalanced(tree);
+            assertEquals(points.size(), tree.size());
+            for (int q = 0; q < 200; q++) {
+                Point2D p = new Point2D(random.nextInt(50) / 50.0, random.nextDouble());
+                double best = Double.POSITIVE_INFINITY;
+                for (Point2D point : points) {
+                    best = Math.min(best, point.distanceSquaredTo(p));
+                }
+                assertEquals(best, tree.nearest(p).distanceSquaredTo(p));
+
+                double x = random.nextInt(50) / 50.0, y = random.nextInt(50) / 50.0;
+                RectHV rect = new RectHV(x, y, Math.min(1, x + 0.2), Math.min(1, y + 0.2));
+                Set<Point2D> expected = new HashSet<>();
+                for (Point2D point : points) {
+                    if (rect.contains(point)) expected.add(point);
+                }
+                Set<Point2D> found = new HashSet<>();
+                for (Point2D point : tree.range(rect)) {
+                    found.add(point);
+                }
+                assertEquals(expected, found);
+            }
+        }
+    }
+
+    @Test
+    void bulkLoadAndInsertAgreeOnSignedZeros() {
+        Point2D[] points = {
+                new Point2D(-0.0, 0.5), new Point2D(0.0, 0.5), new Point2D(0.5, -0.0),
+                new Point2D(0.5, 0.0)
+        };
+        KdTree loaded = new KdTree(points);
+        KdTree inserted = new KdTree();
+        for (Point2D p : points) {
+            inserted.insert(p);
+        }
+        assertEquals(inserted.size(), loaded.size());
+        assertEquals(2, loaded.size());
+    }
+
+    @Test
+    void bulkLoadDropsDuplicatesAndStaysBalanced() {
+        Random random = new Random(20);
+        Point2D[] points = new Point2D[20_000];
+        Set<Point2D> distinct = new HashSet<>();
+        for (int i = 0; i < points.length; i++) {
+            // many repeats, on a line and off it
+            points[i] = random.nextBoolean()
+                        ? new Point2D(0.25, random.nextInt(1000) / 1000.0)
+                        : new Point2D(random.nextInt(100) / 100.0, random.nextInt(100) / 100.0);
+            distinct.add(points[i]);
+        }
+        for (KdTree tree : new KdTree[] { new KdTree(points), new KdTree(Stream.of(points)) }) {
+            assertBalanced(tree);
+            assertEquals(distinct.size(), tree.size());
+            for (Point2D p : distinct) {
+                assertTrue(tree.contains(p), p.toString());
+            }
+            assertFalse(tree.contains(new Point2D(0.255, 0.5)));
+
+            // a loaded tree takes further changes like any other
+            tree.insert(new Point2D(0.255, 0.5));
+            tree.delete(points[0]);
+            assertEquals(distinct.size(), tree.size());
+            assertTrue(tree.contains(new Point2D(0.255, 0.5)));
+            assertFalse(tree.contains(points[0]));
+            assertBalanced(tree);
+        }
+
+        assertTrue(new KdTree(new Point2D[0]).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> new KdTree((Point2D[]) null));
+        assertThrows(IllegalArgumentException.class, () -> new KdTree((Stream<Point2D>) null));
+        assertThrows(IllegalArgumentException.class,
+                     () -> new KdTree(new Point2D[] { new Point2D(0, 0), null }));
+    }
+
+    // the same random inserts, deletes and queries on a tree grown from
+    // empty and on PointSET
+    @Test
+    void operationsMatchPointSET() {
+        Random random = new Random(21);
+        KdTree tree = new KdTree();
+        PointSET set = new PointSET();
+        for (int i = 0; i < 30_000; i++) {
+            Point2D p = new Point2D(random.nextInt(200) / 200.0, random.nextInt(200) / 200.0);
+            int operation = random.nextInt(10);
+            if (operation < 6) {
+                tree.insert(p);
+                set.insert(p);
+            }
+            else if (operation < 8) {
+                tree.delete(p);
+                set.delete(p);
+            }
+            else {
+                assertEquals(set.contains(p), tree.contains(p));
+            }
+            assertEquals(set.size(), tree.size());
+            assertEquals(set.isEmpty(), tree.isEmpty());
+
+            if (i % 100 == 0 && !set.isEmpty()) {
+                assertEquals(set.nearest(p).distanceSquaredTo(p),
+                             tree.nearest(p).distanceSquaredTo(p));
+                double x = random.nextDouble() * 0.9, y = random.nextDouble() * 0.9;
+                RectHV rect = new RectHV(x, y, x + 0.1, y + 0.1);
+                Set<Point2D> expected = new HashSet<>();
+                for (Point2D point : set.range(rect)) {
+                    expected.add(point);
+                }
+                Set<Point2D> found = new HashSet<>();
+                for (Point2D point : tree.range(rect)) {
+                    assertTrue(found.add(point), point.toString());
+                }
+                assertEquals(expected, found);
+            }
+        }
+        assertBalanced(tree);
+    }
+
+    // k nearest and radius queries on random points and on points that
+    // all share one x, where every division of one orientation ties
+    @Test
+    void neighborQueriesMatchPointSET() {
+        Random random = new Random(22);
+        for (boolean collinear : new boolean[] { false, true }) {
+            KdTree tree = new KdTree();
+            PointSET set = new PointSET();
+            for (int i = 0; i < 3000; i++) {
+                Point2D p = new Point2D(collinear ? 0.5 : random.nextInt(100) / 100.0,
+                                        random.nextInt(1000) / 1000.0);
+                tree.insert(p);
+                set.insert(p);
+            }
+            for (int q = 0; q < 200; q++) {
+                Point2D p = new Point2D(random.nextDouble(), random.nextDouble());
+                for (int k : new int[] { 1, 2, 10, set.size(), set.size() + 1 }) {
+                    assertEquals(distances(set.nearest(p, k), p),
+                                 distances(tree.nearest(p, k), p));
+                }
+                double r = random.nextDouble() * 0.1;
+                assertEquals(toSet(set.withinRadius(p, r)), toSet(tree.withinRadius(p, r)));
+            }
+            // a point at exactly distance r is within it, even for r = 0
+            Point2D p = set.nearest(new Point2D(0.3, 0.3));
+            assertEquals(Set.of(p), toSet(tree.withinRadius(p, 0)));
+        }
+
+        KdTree empty = new KdTree();
+        assertFalse(empty.nearest(new Point2D(0.5, 0.5), 3).iterator().hasNext());
+        assertFalse(empty.withinRadius(new Point2D(0.5, 0.5), 1).iterator().hasNext());
+        assertThrows(IllegalArgumentException.class, () -> empty.nearest(new Point2D(0, 0), 0));
+        assertThrows(IllegalArgumentException.class,
+                     () -> empty.withinRadius(new Point2D(0, 0), Double.NaN));
+    }
+
+    // batches of several chunks, so that they run in parallel, answer each
+    // query as PointSET does
+    @Test
+    void batchQueriesMatchPointSET() {
+        Random random = new Random(23);
+        PointSET set = new PointSET();
+        Point2D[] points = new Point2D[5000];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new Point2D(random.nextInt(300) / 300.0, random.nextDouble());
+            set.insert(points[i]);
+        }
+        KdTree tree = new KdTree(points);
+
+        Point2D[] queries = new Point2D[3000];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = new Point2D(random.nextDouble(), random.nextDouble());
+        }
+        double[] x = new double[queries.length];
+        double[] y = new double[queries.length];
+        tree.nearest(queries, x, y);
+        for (int i = 0; i < queries.length; i++) {
+            Point2D found = new Point2D(x[i], y[i]);
+            assertTrue(set.contains(found), found.toString());
+            assertEquals(set.nearest(queries[i]).distanceSquaredTo(queries[i]),
+                         found.distanceSquaredTo(queries[i]));
+        }
+
+        RectHV[] rects = new RectHV[2500];
+        for (int i = 0; i < rects.length; i++) {
+            double xmin = random.nextDouble() * 0.95, ymin = random.nextDouble() * 0.95;
+            rects[i] = new RectHV(xmin, ymin, xmin + 0.05, ymin + 0.05);
+        }
+        int[] offsets = new int[rects.length + 1];
+        // too small at first: only the offsets are filled
+        int total = tree.range(rects, offsets, new double[0], new double[0]);
+        assertEquals(total, offsets[rects.length]);
+        x = new double[total];
+        y = new double[total];
+        assertEquals(total, tree.range(rects, offsets, x, y));
+        for (int i = 0; i < rects.length; i++) {
+            Set<Point2D> found = new HashSet<>();
+            for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                assertTrue(found.add(new Point2D(x[j], y[j])));
+            }
+            assertEquals(toSet(set.range(rects[i])), found);
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                     () -> tree.nearest(queries, new double[1], new double[queries.length]));
+        assertThrows(IllegalArgumentException.class,
+                     () -> tree.range(rects, new int[rects.length], new double[0], new double[0]));
+    }
+}
@@ -0,0 +1,59 @@
+/* *****************************************************************************
+ * Tests of PointSET's k-nearest query.
+ *
+ **************************************************************************** */
+
+import edu.princeton.cs.algs4.Point2D;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PointSETTest {
+
+    // squared distances of points to p, in the order given
+    private static double[] distances(Iterable<Point2D> points, Point2D p) {
+        List<Double> distances = new ArrayList<>();
+        for (Point2D point : points) {
+            distances.add(point.distanceSquaredTo(p));
+        }
+        return distances.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    @Test
+    void nearestKMatchesSortedDistances() {
+        Random random = new Random(5);
+        PointSET set = new PointSET();
+        List<Point2D> points = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            // a coarse grid, so that many distances tie
+            Point2D p = new Point2D(random.nextInt(20) / 20.0, random.nextInt(20) / 20.0);
+            if (!set.contains(p)) points.add(p);
+            set.insert(p);
+        }
+
+        for (int q = 0; q < 100; q++) {
+            Point2D p = new Point2D(random.nextDouble(), random.nextDouble());
+            double[] all = distances(points, p);
+            Arrays.sort(all);
+            for (int k : new int[] { 1, 7, points.size(), points.size() + 3 }) {
+                double[] expected = Arrays.copyOf(all, Math.min(k, all.length));
+                assertArrayEquals(expected, distances(set.nearest(p, k), p));
+            }
+        }
+    }
+
+    @Test
+    void nearestKOfEmptySet() {
+        assertFalse(new PointSET().nearest(new Point2D(0.5, 0.5), 3).iterator().hasNext());
+        PointSET one = new PointSET();
+        one.insert(new Point2D(0.1, 0.2));
+        assertTrue(one.nearest(new Point2D(0.5, 0.5), 3).iterator().hasNext());
+    }
+}
@@ -0,0 +1,46 @@
+/* *****************************************************************************
+ * Execution:    java -jar benchmarks.jar [JMH options]
+ *
+ * Runs the benchmarks like JMH's own main, taking the same options, with
+ * the gc profiler always added so that allocation rates are reported
+ * beside the times.
+ *
+ **************************************************************************** */
+
+package puzzle.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+
+public final class Benchmarks {
+
+    private Benchmarks() { }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (options.shouldHelp()) {
+            options.showHelp();
+            return;
+        }
+        if (options.shouldList()) {
+            new Runner(options).list();
+            return;
+        }
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+        if (!hasGcProfiler(options)) builder.addProfiler(GCProfiler.class);
+        new Runner(builder.build()).run();
+    }
+
+    // was the gc profiler asked for already, as -prof gc or by class name?
+    private static boolean hasGcProfiler(CommandLineOptions options) {
+        for (ProfilerConfig profiler : options.getProfilers()) {
+            String name = profiler.getKlass();
+            if (name.equals("gc") || name.equals(GCProfiler.class.getName())) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,98 @@
+/* *****************************************************************************
+ * Board's per-board operations, the search's hot path: the two distances,
+ * neighbors, equals against an equal board and twin. Every invocation runs
+ * the operation once on each board of a seeded suite, so a result is the
+ * average over boards of one width and solution depth, and the gc
+ * profiler's gc.alloc.rate.norm is the bytes allocated per operation.
+ *
+ **************************************************************************** */
+
+package puzzle.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BoardBenchmark {
+
+    private static final int BOARDS = 256;
+
+    @Param({ "3x3/20", "4x4/30", "5x5/30" })
+    private String suite;
+
+    @Param("1")
+    private long seed;
+
+    private Object[] boards;
+    private Object[] copies;   // equal to boards, but other instances
+
+    @Setup
+    public void setup() {
+        InstanceSuite instances = InstanceSuite.generate(suite, BOARDS, seed);
+        boards = instances.boards();
+        copies = instances.boards();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public void manhattan(Blackhole blackhole) throws Throwable {
+        for (Object board : boards) {
+            blackhole.consume((int) Puzzles.MANHATTAN.invokeExact(board));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public void hamming(Blackhole blackhole) throws Throwable {
+        for (Object board : boards) {
+            blackhole.consume((int) Puzzles.HAMMING.invokeExact(board));
+        }
+    }
+
+    // neighbors() and a walk over every neighbor it yields
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public void neighbors(Blackhole blackhole) throws Throwable {
+        for (Object board : boards) {
+            Iterable<?> neighbors = (Iterable<?>) (Object) Puzzles.NEIGHBORS.invokeExact(board);
+            for (Object neighbor : neighbors) {
+                blackhole.consume(neighbor);
+            }
+        }
+    }
+
+    // equal boards, the case that compares every tile
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public void equals(Blackhole blackhole) throws Throwable {
+        for (int i = 0; i < BOARDS; i++) {
+            blackhole.consume((boolean) Puzzles.EQUALS.invokeExact(boards[i], copies[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public void twin(Blackhole blackhole) throws Throwable {
+        for (Object board : boards) {
+            blackhole.consume((Object) Puzzles.TWIN.invokeExact(board));
+        }
+    }
+}
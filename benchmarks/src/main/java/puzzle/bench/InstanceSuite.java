@@ -0,0 +1,161 @@
+/* *****************************************************************************
+ * Seeded suites of boards with a known solution depth.
+ *
+ * A suite is named by its width and depth, "4x4/30" for instance. Each
+ * board is made by a random walk of the blank from the goal: depth moves,
+ * never undoing the last one nor revisiting a board. Such a walk is an
+ * upper bound only, since it may wander into a board the goal reaches in
+ * fewer moves, so every walk is solved and kept only if its shortest
+ * solution is exactly depth moves. The same seed always gives the same
+ * suite, so runs on different builds compare the same work.
+ *
+ **************************************************************************** */
+
+package puzzle.bench;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+final class InstanceSuite {
+
+    // walks tried per board kept before giving up on a depth
+    private static final int ATTEMPTS_PER_BOARD = 1000;
+
+    // blank offsets for LEFT, RIGHT, UP and DOWN, as in Board
+    private static final int[] ROWS = { 0, 0, -1, 1 };
+    private static final int[] COLUMNS = { -1, 1, 0, 0 };
+
+    private final int width;
+    private final int depth;
+    private final int[][][] tiles;
+
+    private InstanceSuite(int width, int depth, int[][][] tiles) {
+        this.width = width;
+        this.depth = depth;
+        this.tiles = tiles;
+    }
+
+    // count boards of the suite named by spec, "<width>x<width>/<depth>"
+    static InstanceSuite generate(String spec, int count, long seed) {
+        String[] parts = spec.split("[x/]");
+        if (parts.length != 3 || !parts[0].equals(parts[1])) {
+            throw new IllegalArgumentException("suite is not <n>x<n>/<depth>: " + spec);
+        }
+        int width = Integer.parseInt(parts[0]);
+        int depth = Integer.parseInt(parts[2]);
+        if (width < 2 || depth < 0 || count < 1) throw new IllegalArgumentException(spec);
+
+        SplittableRandom random = new SplittableRandom(seed);
+        Object heuristic = Puzzles.heuristic("LINEAR_CONFLICT", width);
+        int[][][] tiles = new int[count][][];
+        int found = 0;
+        for (long attempts = 0; found < count; attempts++) {
+            if (attempts == (long) ATTEMPTS_PER_BOARD * count) {
+                throw new IllegalStateException("too few walks of " + spec
+                                                + " are shortest solutions");
+            }
+            int[][] walk = walk(width, depth, random);
+            if (walk != null && moves(walk, heuristic) == depth) {
+                tiles[found++] = walk;
+            }
+        }
+        return new InstanceSuite(width, depth, tiles);
+    }
+
+    int width() {
+        return width;
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    int size() {
+        return tiles.length;
+    }
+
+    // new Board instances of the suite; equal, but not the same, boards on
+    // every call
+    Object[] boards() {
+        Object[] boards = new Object[tiles.length];
+        for (int i = 0; i < boards.length; i++) {
+            boards[i] = board(tiles[i]);
+        }
+        return boards;
+    }
+
+    // the tiles after a random walk of the blank from the goal, or null if
+    // the walk boxed itself in
+    private static int[][] walk(int width, int depth, SplittableRandom random) {
+        int[][] tiles = new int[width][width];
+        for (int i = 0; i < width * width - 1; i++) {
+            tiles[i / width][i % width] = i + 1;
+        }
+        int row = width - 1;
+        int column = width - 1;
+        int previous = -1;
+        Set<String> seen = new HashSet<>();
+        seen.add(Arrays.deepToString(tiles));
+
+        int[] choices = new int[4];
+        for (int step = 0; step < depth; step++) {
+            int count = 0;
+            for (int direction = 0; direction < 4; direction++) {
+                int r = row + ROWS[direction];
+                int c = column + COLUMNS[direction];
+                if (direction == (previous ^ 1) || r < 0 || r >= width || c < 0 || c >= width) {
+                    continue;
+                }
+                swap(tiles, row, column, r, c);
+                if (!seen.contains(Arrays.deepToString(tiles))) choices[count++] = direction;
+                swap(tiles, row, column, r, c);
+            }
+            if (count == 0) return null;
+
+            int direction = choices[random.nextInt(count)];
+            int r = row + ROWS[direction];
+            int c = column + COLUMNS[direction];
+            swap(tiles, row, column, r, c);
+            seen.add(Arrays.deepToString(tiles));
+            row = r;
+            column = c;
+            previous = direction;
+        }
+        return tiles;
+    }
+
+    private static void swap(int[][] a, int r1, int c1, int r2, int c2) {
+        int t = a[r1][c1];
+        a[r1][c1] = a[r2][c2];
+        a[r2][c2] = t;
+    }
+
+    // moves of the shortest solution, by A* with linear conflicts
+    private static int moves(int[][] tiles, Object heuristic) {
+        try {
+            Object solver = (Object) Puzzles.NEW_SOLVER.invokeExact(
+                    board(tiles), Puzzles.algorithm("A_STAR"), heuristic);
+            return (int) Puzzles.MOVES.invokeExact(solver);
+        }
+        catch (RuntimeException | Error e) {
+            throw e;
+        }
+        catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Object board(int[][] tiles) {
+        try {
+            return (Object) Puzzles.NEW_BOARD.invokeExact(tiles);
+        }
+        catch (RuntimeException | Error e) {
+            throw e;
+        }
+        catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
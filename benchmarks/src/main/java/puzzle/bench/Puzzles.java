@@ -0,0 +1,106 @@
+/* *****************************************************************************
+ * The puzzle's classes, reached through method handles.
+ *
+ * Board, Solver and the heuristics live in the default package, which no
+ * named package can import, and JMH will not generate code for benchmarks
+ * in the default package. The benchmarks therefore hold boards as Object
+ * and call them through these handles. Each handle is a static final
+ * constant whose type has been adapted to Object, so invokeExact links
+ * straight to the target and the JIT inlines it like a direct call.
+ *
+ **************************************************************************** */
+
+package puzzle.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+final class Puzzles {
+
+    private static final Class<?> BOARD = load("Board");
+    private static final Class<?> SOLVER = load("Solver");
+    private static final Class<?> HEURISTIC = load("Heuristic");
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static final Class<? extends Enum> ALGORITHM =
+            (Class<? extends Enum>) load("Solver$Algorithm");
+
+    // (int[][]) -> Board
+    static final MethodHandle NEW_BOARD =
+            constructor(BOARD, MethodType.methodType(Object.class, int[][].class), int[][].class);
+    // (Board) -> int
+    static final MethodHandle MANHATTAN = virtual(BOARD, "manhattan", int.class);
+    static final MethodHandle HAMMING = virtual(BOARD, "hamming", int.class);
+    // (Board) -> Iterable<Board>, as Object
+    static final MethodHandle NEIGHBORS = virtual(BOARD, "neighbors", Iterable.class);
+    // (Board) -> Board
+    static final MethodHandle TWIN = virtual(BOARD, "twin", BOARD);
+    // (Board, Object) -> boolean
+    static final MethodHandle EQUALS = virtual(BOARD, "equals", boolean.class, Object.class);
+    // (Board, Algorithm, Heuristic) -> Solver
+    static final MethodHandle NEW_SOLVER =
+            constructor(SOLVER, MethodType.methodType(Object.class, Object.class, Object.class,
+                                                      Object.class),
+                        BOARD, ALGORITHM, HEURISTIC);
+    // (Solver) -> int
+    static final MethodHandle MOVES = virtual(SOLVER, "moves", int.class);
+
+    private Puzzles() { }
+
+    // the Solver.Algorithm constant with the given name
+    @SuppressWarnings("unchecked")
+    static Object algorithm(String name) {
+        return Enum.valueOf(ALGORITHM, name);
+    }
+
+    // a heuristic for width-by-width boards: MANHATTAN or LINEAR_CONFLICT
+    static Object heuristic(String name, int width) {
+        String type;
+        switch (name) {
+            case "MANHATTAN":       type = "ManhattanHeuristic"; break;
+            case "LINEAR_CONFLICT": type = "LinearConflictHeuristic"; break;
+            default: throw new IllegalArgumentException("unknown heuristic: " + name);
+        }
+        try {
+            return load(type).getConstructor(int.class).newInstance(width);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Class<?> load(String name) {
+        try {
+            return Class.forName(name);
+        }
+        catch (ClassNotFoundException e) {
+            throw new IllegalStateException("puzzle classes not on the class path", e);
+        }
+    }
+
+    // the public method, with its receiver, reference arguments and
+    // reference result all widened to Object
+    private static MethodHandle virtual(Class<?> owner, String name, Class<?> result,
+                                        Class<?>... parameters) {
+        try {
+            MethodHandle handle = MethodHandles.publicLookup()
+                    .findVirtual(owner, name, MethodType.methodType(result, parameters));
+            return handle.asType(handle.type().erase());
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle constructor(Class<?> owner, MethodType type,
+                                            Class<?>... parameters) {
+        try {
+            return MethodHandles.publicLookup()
+                    .findConstructor(owner, MethodType.methodType(void.class, parameters))
+                    .asType(type);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/* *****************************************************************************
+ * Full solves of seeded suites, by algorithm and heuristic. Every board of
+ * a suite has a shortest solution of exactly the suite's depth, so the
+ * time per solve follows the depth rather than the luck of the draw. The
+ * solver engines keep their buffers between solves on a thread, as they
+ * do in a long-running caller, so warmup reaches that steady state.
+ *
+ **************************************************************************** */
+
+package puzzle.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class SolverBenchmark {
+
+    private static final int BOARDS = 16;
+
+    @Param({ "3x3/20", "4x4/30", "5x5/30" })
+    private String suite;
+
+    @Param({ "A_STAR", "IDA_STAR" })
+    private String algorithm;
+
+    @Param({ "MANHATTAN", "LINEAR_CONFLICT" })
+    private String heuristic;
+
+    @Param("1")
+    private long seed;
+
+    private Object[] boards;
+    private Object solverAlgorithm;
+    private Object solverHeuristic;
+
+    @Setup
+    public void setup() {
+        InstanceSuite instances = InstanceSuite.generate(suite, BOARDS, seed);
+        boards = instances.boards();
+        solverAlgorithm = Puzzles.algorithm(algorithm);
+        solverHeuristic = Puzzles.heuristic(heuristic, instances.width());
+    }
+
+    // moves summed over the suite, which must be BOARDS times its depth
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public int solve() throws Throwable {
+        int moves = 0;
+        for (Object board : boards) {
+            Object solver = (Object) Puzzles.NEW_SOLVER.invokeExact(board, solverAlgorithm,
+                                                                    solverHeuristic);
+            moves += (int) Puzzles.MOVES.invokeExact(solver);
+        }
+        return moves;
+    }
+}